@@ -0,0 +1,25 @@
+#!/bin/bash
+# Runs once from the replica's docker-entrypoint-initdb.d, on an empty data directory.
+# Creates the replication user on the primary (db) and points this server at it with GTID
+# auto-positioning; the entrypoint then restarts mysqld, which starts replicating.
+set -eo pipefail
+
+# db serves TCP only once its own init scripts (the migrations) have run
+until mysqladmin ping -h db -uroot -p"$MYSQL_ROOT_PASSWORD" --silent 2>/dev/null; do
+  sleep 2
+done
+
+mysql -h db -uroot -p"$MYSQL_ROOT_PASSWORD" <<SQL
+CREATE USER IF NOT EXISTS '${REPLICATION_USER}'@'%' IDENTIFIED BY '${REPLICATION_PASSWORD}';
+GRANT REPLICATION SLAVE ON *.* TO '${REPLICATION_USER}'@'%';
+SQL
+
+mysql -uroot -p"$MYSQL_ROOT_PASSWORD" <<SQL
+CHANGE REPLICATION SOURCE TO
+  SOURCE_HOST = 'db',
+  SOURCE_PORT = 3306,
+  SOURCE_USER = '${REPLICATION_USER}',
+  SOURCE_PASSWORD = '${REPLICATION_PASSWORD}',
+  SOURCE_AUTO_POSITION = 1,
+  GET_SOURCE_PUBLIC_KEY = 1;
+SQL
@@ -0,0 +1,46 @@
+package com.rohitsurya2809.vaultedge.bench;
+
+import com.rohitsurya2809.vaultedge.config.IdGenerator;
+import com.rohitsurya2809.vaultedge.config.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing one id: random (version 4, the old default) against time-ordered UUIDv7,
+ * single-threaded and with four threads sharing one generator (the v7 counter is a CAS loop).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    private final IdGenerator random = IdGenerator.RANDOM;
+    private final IdGenerator uuidV7 = new UuidV7Generator();
+
+    @Benchmark
+    public UUID random() {
+        return random.next();
+    }
+
+    @Benchmark
+    public UUID uuidV7() {
+        return uuidV7.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID randomShared() {
+        return random.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID uuidV7Shared() {
+        return uuidV7.next();
+    }
+}
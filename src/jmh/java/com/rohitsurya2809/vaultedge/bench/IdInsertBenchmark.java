@@ -0,0 +1,102 @@
+package com.rohitsurya2809.vaultedge.bench;
+
+import com.rohitsurya2809.vaultedge.config.IdGenerator;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.config.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput and resulting table size for random (version 4) against time-ordered UUIDv7
+ * primary keys, on a real MySQL ({@code docker compose up db}). Every trial starts from an empty
+ * InnoDB table keyed like transactions and prints its row count, clustered index (data) size and
+ * secondary index size when it ends; random keys show up as a larger, half-empty clustered index.
+ *
+ * Connection settings: -Dbench.jdbc.url, -Dbench.jdbc.user, -Dbench.jdbc.password (defaults
+ * match docker-compose.yml). Pass them to the forked JVM with -jvmArgsAppend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class IdInsertBenchmark {
+
+    private static final int BATCH = 500;
+    private static final int ACCOUNTS = 1_000;
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    @Param({"random", "uuid-v7"})
+    public String generator;
+
+    private IdGenerator ids;
+    private byte[][] accounts;
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        ids = "random".equals(generator) ? IdGenerator.RANDOM : new UuidV7Generator();
+        accounts = new byte[ACCOUNTS][];
+        for (int i = 0; i < ACCOUNTS; i++) accounts[i] = UUIDS.convertToDatabaseColumn(UUID.randomUUID());
+
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3307/banking_db?rewriteBatchedStatements=true"),
+                System.getProperty("bench.jdbc.user", "root"),
+                System.getProperty("bench.jdbc.password", "password"));
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_ids");
+            st.execute("CREATE TABLE bench_ids ("
+                    + "id BINARY(16) NOT NULL PRIMARY KEY, "
+                    + "account_id BINARY(16) NOT NULL, "
+                    + "amount DECIMAL(18,2) NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL, "
+                    + "KEY idx_bench_ids_account_created (account_id, created_at, id)) ENGINE=InnoDB");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO bench_ids (id, account_id, amount, created_at) VALUES (?, ?, ?, ?)");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < BATCH; i++) {
+            insert.setBytes(1, UUIDS.convertToDatabaseColumn(ids.next()));
+            insert.setBytes(2, accounts[rnd.nextInt(ACCOUNTS)]);
+            insert.setBigDecimal(3, BigDecimal.valueOf(rnd.nextInt(1, 100_000), 2));
+            insert.setTimestamp(4, now);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("SET SESSION information_schema_stats_expiry = 0");
+            st.execute("ANALYZE TABLE bench_ids");
+            try (ResultSet rs = st.executeQuery("SELECT table_rows, data_length, index_length FROM information_schema.tables "
+                    + "WHERE table_schema = DATABASE() AND table_name = 'bench_ids'")) {
+                if (rs.next()) {
+                    long rows = rs.getLong(1);
+                    System.out.printf("%n[%s] ~%d rows, clustered index %.1f MiB (%.0f B/row), secondary index %.1f MiB%n",
+                            generator, rows, rs.getLong(2) / 1048576.0, rows > 0 ? rs.getLong(2) / (double) rows : 0,
+                            rs.getLong(3) / 1048576.0);
+                }
+            }
+            st.execute("DROP TABLE bench_ids");
+        } finally {
+            connection.close();
+        }
+    }
+}
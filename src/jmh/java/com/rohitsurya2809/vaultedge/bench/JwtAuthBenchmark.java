@@ -0,0 +1,62 @@
+package com.rohitsurya2809.vaultedge.bench;
+
+import com.rohitsurya2809.vaultedge.security.JwtPrincipal;
+import com.rohitsurya2809.vaultedge.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Key;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT cost of authenticating one request.
+ *
+ * parserPerCall is the old filter: extractUsername and validateToken each built a new parser
+ * and verified the token. verifyOnce is one verification with the shared parser (what
+ * {@link JwtUtil#authenticate} pays on a cache miss) and authenticateCached the common case
+ * of a client reusing its token. The old filter's user lookup per request is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "1234567890abcdefghijklmnopqrstuvwxyz";
+
+    private Key signingKey;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        signingKey = Keys.hmacShaKeyFor(SECRET.getBytes());
+        jwtUtil = new JwtUtil(SECRET, 3600, 10_000, new SimpleMeterRegistry());
+        token = jwtUtil.generateToken("bench@example.com", UUID.randomUUID());
+        jwtUtil.authenticate(token);
+    }
+
+    @Benchmark
+    public boolean parserPerCall() {
+        String username = Jwts.parserBuilder().setSigningKey(signingKey).build()
+                .parseClaimsJws(token).getBody().getSubject();
+        Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(token);
+        return username != null;
+    }
+
+    @Benchmark
+    public String verifyOnce() {
+        return jwtUtil.extractClaim(token, Claims::getSubject);
+    }
+
+    @Benchmark
+    public JwtPrincipal authenticateCached() {
+        return jwtUtil.authenticate(token);
+    }
+}
@@ -0,0 +1,87 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import com.rohitsurya2809.vaultedge.exception.ServiceBusyException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of threads holding or waiting inside the connection pool at the pool size.
+ *
+ * A caller takes a permit before asking the pool for a connection and gives it back when the
+ * connection is closed. Callers beyond that wait at most acquireTimeoutMillis on a fair
+ * semaphore, then get {@link ServiceBusyException} (503) instead of piling up in the pool's
+ * own 30 s wait. It also bounds how many threads are inside the JDBC driver at once.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public BulkheadDataSource(DataSource target, int maxConcurrent, long acquireTimeoutMillis) {
+        super(target);
+        this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+        this.acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceBusyException("Database is busy, retry shortly", 1);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database permit", ex);
+        }
+    }
+
+    // releases the permit exactly once, on the first close()
+    private Connection guard(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,37 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import com.rohitsurya2809.vaultedge.service.ConflictRetry;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/contention: the accounts whose postings most often conflicted with concurrent
+ * updates (?limit=, default 20). DELETE clears the counters. Admin only.
+ */
+@Component
+@Endpoint(id = "contention")
+public class ContentionEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final ConflictRetry conflictRetry;
+
+    public ContentionEndpoint(ConflictRetry conflictRetry) {
+        this.conflictRetry = conflictRetry;
+    }
+
+    @ReadOperation
+    public List<ConflictRetry.Contention> top(@Nullable Integer limit) {
+        return conflictRetry.topContended(limit != null ? limit : DEFAULT_LIMIT);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        conflictRetry.reset();
+    }
+}
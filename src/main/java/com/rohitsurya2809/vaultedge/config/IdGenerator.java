@@ -0,0 +1,15 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import java.util.UUID;
+
+/**
+ * Source of primary keys for the BINARY(16) id columns. Entities and services obtain ids through
+ * {@link Ids#next()}, which delegates to the generator selected by {@code ids.generator}.
+ */
+public interface IdGenerator {
+
+    UUID next();
+
+    /** Plain random (version 4) ids, as used before time-ordered ids were introduced. */
+    IdGenerator RANDOM = UUID::randomUUID;
+}
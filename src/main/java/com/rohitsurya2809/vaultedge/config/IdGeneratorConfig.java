@@ -0,0 +1,21 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    // ids.generator: uuid-v7 (default, time-ordered) or random (version 4)
+    @Bean
+    public IdGenerator idGenerator(@Value("${ids.generator:uuid-v7}") String type) {
+        IdGenerator generator = switch (type) {
+            case "uuid-v7" -> new UuidV7Generator();
+            case "random" -> IdGenerator.RANDOM;
+            default -> throw new IllegalArgumentException("Unknown ids.generator: " + type);
+        };
+        Ids.use(generator);
+        return generator;
+    }
+}
@@ -0,0 +1,25 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Static access to the active {@link IdGenerator}, so JPA entities and builders that are not
+ * Spring beans can assign ids. Defaults to {@link UuidV7Generator}; {@link IdGeneratorConfig}
+ * swaps in the configured generator at startup.
+ */
+public final class Ids {
+
+    private static volatile IdGenerator generator = new UuidV7Generator();
+
+    private Ids() {
+    }
+
+    public static UUID next() {
+        return generator.next();
+    }
+
+    public static void use(IdGenerator idGenerator) {
+        generator = Objects.requireNonNull(idGenerator, "idGenerator");
+    }
+}
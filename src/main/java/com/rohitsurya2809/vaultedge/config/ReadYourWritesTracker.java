@@ -0,0 +1,50 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohitsurya2809.vaultedge.security.JwtPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Customers who changed something within the last windowMillis; their reads stay on the primary
+ * so they see their own writes despite replica lag.
+ *
+ * Registered as an interceptor: any mutating request (not GET/HEAD/OPTIONS) by an
+ * authenticated customer opens the window when it completes. A window of 0 disables it.
+ */
+public class ReadYourWritesTracker implements HandlerInterceptor {
+
+    private final Cache<UUID, Boolean> recent;
+
+    public ReadYourWritesTracker(long windowMillis, long maxEntries) {
+        this.recent = windowMillis > 0
+                ? Caffeine.newBuilder()
+                        .expireAfterWrite(Duration.ofMillis(windowMillis))
+                        .maximumSize(Math.max(1, maxEntries))
+                        .build()
+                : null;
+    }
+
+    public void markWrite(UUID customerId) {
+        if (recent != null && customerId != null) recent.put(customerId, Boolean.TRUE);
+    }
+
+    public boolean recentlyWrote(UUID customerId) {
+        return recent != null && recent.getIfPresent(customerId) != null;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) return;
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof JwtPrincipal p) markWrite(p.getUid());
+    }
+}
@@ -0,0 +1,88 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the replica's replication delay so reads can fall back to the primary while it lags.
+ *
+ * Every checkSeconds it reads Seconds_Behind_Source from SHOW REPLICA STATUS (MySQL 8.0.22+;
+ * the replica user needs REPLICATION CLIENT). The replica is usable while the delay is at most
+ * maxLagSeconds. A stopped replication thread (NULL delay), an instance that is not replicating
+ * at all (no status row) or a failed probe makes it unusable, so reads stay on the primary
+ * rather than on data that may never catch up. With fallback disabled the replica is always used.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final long maxLagSeconds;
+    private final long checkSeconds;
+    private final boolean fallback;
+
+    private volatile long lagSeconds = -1; // -1 = unknown
+    private volatile boolean usable;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagSeconds, long checkSeconds, boolean fallback) {
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagSeconds = Math.max(0, maxLagSeconds);
+        this.checkSeconds = Math.max(1, checkSeconds);
+        this.fallback = fallback;
+        this.usable = !fallback;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!fallback) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag");
+            t.setDaemon(true);
+            return t;
+        });
+        check();
+        scheduler.scheduleWithFixedDelay(this::check, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    void check() {
+        try {
+            Long lag = replica.query("SHOW REPLICA STATUS", rs -> {
+                if (!rs.next()) return null;
+                long v = rs.getLong("Seconds_Behind_Source");
+                return rs.wasNull() ? null : v;
+            });
+            lagSeconds = lag != null ? lag : -1;
+            boolean nowUsable = lag != null && lag <= maxLagSeconds;
+            if (nowUsable != usable) {
+                log.info("Replica {} (lag {}s, limit {}s)", nowUsable ? "back in use" : "bypassed", lagSeconds, maxLagSeconds);
+            }
+            usable = nowUsable;
+        } catch (RuntimeException ex) {
+            if (usable) log.warn("Replica lag check failed, reading from the primary: {}", ex.toString());
+            lagSeconds = -1;
+            usable = false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Read/write split (datasource.replica.enabled=true).
+ *
+ * Replaces Boot's single pool with two: "primary" from spring.datasource (pool settings under
+ * spring.datasource.hikari) and "replica" from datasource.replica (pool settings under
+ * datasource.replica.hikari). Each pool reports its own hikaricp.* metrics under its pool name.
+ * The application DataSource routes @Transactional(readOnly = true) work to the replica, see
+ * {@link ReplicaRoutingDataSource}. Flyway and everything outside a read-only transaction use
+ * the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig implements WebMvcConfigurer {
+
+    private final ReadYourWritesTracker readYourWrites;
+
+    public ReplicaRoutingConfig(@Value("${datasource.replica.read-your-writes-ms:2000}") long windowMillis,
+                                @Value("${datasource.replica.read-your-writes-max-entries:100000}") long maxEntries) {
+        this.readYourWrites = new ReadYourWritesTracker(windowMillis, maxEntries);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(url);
+        ds.setUsername(username);
+        ds.setPassword(password);
+        ds.setPoolName("replica");
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${datasource.replica.max-lag-seconds:5}") long maxLagSeconds,
+                                               @Value("${datasource.replica.lag-check-seconds:5}") long checkSeconds,
+                                               @Value("${datasource.replica.lag-fallback:true}") boolean fallback) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, maxLagSeconds, checkSeconds, fallback);
+        meterRegistry.gauge("datasource.replica.lag_seconds", monitor, ReplicaLagMonitor::getLagSeconds);
+        meterRegistry.gauge("datasource.replica.usable", monitor, m -> m.isUsable() ? 1 : 0);
+        return monitor;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return readYourWrites;
+    }
+
+    // the beans are typed DataSource here: in virtual-thread mode each pool is wrapped in a bulkhead
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, replicaLagMonitor,
+                readYourWrites, meterRegistry);
+        routing.afterPropertiesSet();
+        // defer the choice to the first statement, when the transaction's read-only flag is known
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWrites);
+    }
+}
@@ -0,0 +1,80 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import com.rohitsurya2809.vaultedge.security.JwtPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else to the primary.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the read-only flag of a transaction is only
+ * known once it has begun, so the target is chosen at the first statement. A read-only
+ * transaction still goes to the primary while the replica is lagging (see
+ * {@link ReplicaLagMonitor}) or while the calling customer is inside their read-your-writes
+ * window (see {@link ReadYourWritesTracker}).
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker readYourWrites;
+    private final Counter writes;
+    private final Counter lagging;
+    private final Counter recentWriter;
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReplicaLagMonitor lagMonitor,
+                                    ReadYourWritesTracker readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.writes = routed(meterRegistry, "primary", "read-write");
+        this.lagging = routed(meterRegistry, "primary", "replica-lag");
+        this.recentWriter = routed(meterRegistry, "primary", "read-your-writes");
+        this.replicaReads = routed(meterRegistry, "replica", "read-only");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isUsable()) {
+            lagging.increment();
+            return Target.PRIMARY;
+        }
+        UUID customer = currentCustomer();
+        if (customer != null && readYourWrites.recentlyWrote(customer)) {
+            recentWriter.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    private static UUID currentCustomer() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof JwtPrincipal p ? p.getUid() : null;
+    }
+
+    private static Counter routed(MeterRegistry registry, String target, String reason) {
+        return Counter.builder("datasource.routing")
+                .description("Connections handed out by the read/write router")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -1,8 +1,12 @@
 package com.rohitsurya2809.vaultedge.config;
 
+import com.rohitsurya2809.vaultedge.security.BoundedPasswordEncoder;
 import com.rohitsurya2809.vaultedge.security.CustomUserDetailsService;
 import com.rohitsurya2809.vaultedge.security.JwtAuthenticationFilter;
 import com.rohitsurya2809.vaultedge.security.JwtUtil;
+import com.rohitsurya2809.vaultedge.security.RevokedUserRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -10,8 +14,6 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -23,11 +25,21 @@ public class SecurityConfig {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final RevokedUserRegistry revokedUserRegistry;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final boolean statelessJwt;
 
     // <-- NOTE: @Lazy on userDetailsService avoids early instantiation which can cause JPA/entityManager circular problems
-    public SecurityConfig(JwtUtil jwtUtil, @Lazy CustomUserDetailsService userDetailsService) {
+    public SecurityConfig(JwtUtil jwtUtil,
+                          @Lazy CustomUserDetailsService userDetailsService,
+                          RevokedUserRegistry revokedUserRegistry,
+                          BoundedPasswordEncoder passwordEncoder,
+                          @Value("${jwt.stateless:false}") boolean statelessJwt) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.revokedUserRegistry = revokedUserRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.statelessJwt = statelessJwt;
     }
 
     @Bean
@@ -35,7 +47,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         // userDetailsService will be resolved lazily when provider is used
         provider.setUserDetailsService(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        // BCrypt runs on the bounded hashing pool, see BoundedPasswordEncoder
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
@@ -44,15 +57,10 @@ public class SecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     // Make the filter bean lazy too (so the filter doesn't trigger loadUserByUsername during app context startup)
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        return new JwtAuthenticationFilter(jwtUtil, userDetailsService, revokedUserRegistry, statelessJwt);
     }
 
     @Bean
@@ -63,6 +71,9 @@ public class SecurityConfig {
             .cors(cors -> {}) // if you added CorsConfig earlier this enables it
             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Async dispatches (streamed responses) were already authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // Public endpoints
                 .requestMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
                 .requestMatchers("/api/v1/auth/**").permitAll()
@@ -73,6 +84,7 @@ public class SecurityConfig {
                 // Admin-only endpoints
                 .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/v1/accounts/all/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/contention", "/actuator/contention/**").hasRole("ADMIN")
 
                 // Authenticated endpoints
                 .requestMatchers("/api/v1/accounts/**").authenticated()
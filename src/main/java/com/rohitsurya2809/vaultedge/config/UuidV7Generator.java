@@ -0,0 +1,47 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUIDv7 ids (RFC 9562): 48-bit Unix milliseconds, a 12-bit counter in rand_a and
+ * 62 random bits in rand_b.
+ *
+ * Ids are strictly increasing within the process: when several ids share a millisecond the counter
+ * is bumped, and a counter overflow carries into the timestamp field instead of going backwards.
+ * Because {@link UUIDConverter} stores the most significant bits first, consecutive ids land next
+ * to each other in the primary-key index. Ids from other nodes are kept apart by the random bits.
+ */
+public class UuidV7Generator implements IdGenerator {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RAND_B_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    // (unixMillis << 12) | counter of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    @Override
+    public UUID next() {
+        long state = nextState();
+        long msb = ((state >>> 12) << 16) | VERSION | (state & 0xFFF);
+        long lsb = VARIANT | (ThreadLocalRandom.current().nextLong() & RAND_B_MASK);
+        return new UUID(msb, lsb);
+    }
+
+    private long nextState() {
+        while (true) {
+            long prev = last.get();
+            long now = System.currentTimeMillis() << 12;
+            long next;
+            if (now > prev) {
+                // start each millisecond at a random counter in the lower half, leaving room to increment
+                next = now | ThreadLocalRandom.current().nextInt(0x800);
+            } else {
+                next = prev + 1;
+            }
+            if (last.compareAndSet(prev, next)) return next;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.rohitsurya2809.vaultedge.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual-thread mode (spring.threads.virtual.enabled=true, needs a Java 21+ runtime).
+ *
+ * Tomcat request handling and MVC async work (streamed exports, deferred results) run on
+ * virtual threads. The build still targets 17, so the executor is looked up reflectively and
+ * startup fails if the runtime cannot provide it. Because virtual threads are unbounded, the
+ * Hikari pool is fronted by a {@link BulkheadDataSource} with one permit per connection.
+ * Password hashing keeps its own bounded platform pool: it is CPU work, not blocking I/O.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true needs Java 21 or newer, running "
+                    + Runtime.version(), ex);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler(ExecutorService virtualThreadExecutor) {
+        return handler -> handler.setExecutor(virtualThreadExecutor);
+    }
+
+    // replaces Boot's bounded applicationTaskExecutor, which MVC uses for async requests
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    // static: post-processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor dataSourceBulkhead(
+            @Value("${db.bulkhead.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    return new BulkheadDataSource(hikari, hikari.getMaximumPoolSize(), acquireTimeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,14 +1,23 @@
 package com.rohitsurya2809.vaultedge.controller;
 
 import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.service.AccountDirectory;
 import com.rohitsurya2809.vaultedge.service.AccountService;
-import com.rohitsurya2809.vaultedge.security.JwtUtil;
+import com.rohitsurya2809.vaultedge.service.BalanceHistoryService;
+import com.rohitsurya2809.vaultedge.security.JwtPrincipal;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import com.rohitsurya2809.vaultedge.dto.AccountBalanceResponse;
 import com.rohitsurya2809.vaultedge.dto.AccountResponse;
 import com.rohitsurya2809.vaultedge.dto.CustomerSummary;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,40 +26,70 @@ import java.util.UUID;
 public class AccountController {
 
     private final AccountService accountService;
-    private final JwtUtil jwtUtil;
+    private final BalanceHistoryService balanceHistoryService;
+    private final AccountDirectory accountDirectory;
 
-    public AccountController(AccountService accountService, JwtUtil jwtUtil) {
+    public AccountController(AccountService accountService, BalanceHistoryService balanceHistoryService,
+                             AccountDirectory accountDirectory) {
         this.accountService = accountService;
-        this.jwtUtil = jwtUtil;
+        this.balanceHistoryService = balanceHistoryService;
+        this.accountDirectory = accountDirectory;
     }
 
     // Create account for the logged-in user: token must contain uid
     @PostMapping
-public ResponseEntity<AccountResponse> createAccount(@RequestHeader("Authorization") String authHeader,
+public ResponseEntity<AccountResponse> createAccount(@AuthenticationPrincipal JwtPrincipal principal,
                                                      @RequestBody CreateAccountRequest req) {
-    String token = extractBearer(authHeader);
-    UUID userId = jwtUtil.extractUserId(token);
+    UUID userId = callerId(principal);
     Account acc = accountService.createAccount(userId, req.getAccountType(), req.getCurrency(), req.getInitialDeposit());
     return ResponseEntity.status(201).body(toResponse(acc));
 }
 
     @GetMapping("/{id}")
 public ResponseEntity<AccountResponse> getAccount(@PathVariable("id") UUID id) {
-    return ResponseEntity.ok(toResponse(accountService.getAccount(id)));
+    return ResponseEntity.ok(accountService.getAccountResponse(id));
 }
 
     @GetMapping
-public ResponseEntity<List<AccountResponse>> listAccountsForCustomer(@RequestHeader("Authorization") String authHeader) {
-    String token = extractBearer(authHeader);
-    UUID userId = jwtUtil.extractUserId(token);
-    List<Account> accounts = accountService.listAccountsByCustomer(userId);
-    List<AccountResponse> resp = accounts.stream().map(this::toResponse).toList();
-    return ResponseEntity.ok(resp);
+public ResponseEntity<List<AccountResponse>> listAccountsForCustomer(@AuthenticationPrincipal JwtPrincipal principal) {
+    UUID userId = callerId(principal);
+    return ResponseEntity.ok(accountService.listAccountsByCustomer(userId));
 }
 
-    private String extractBearer(String header) {
-        if (header == null || !header.startsWith("Bearer ")) throw new IllegalArgumentException("Missing Bearer token");
-        return header.substring(7);
+    // Balance as of a point in time, or opening/closing balances for a range: only owner
+    @GetMapping("/{id}/balance")
+public ResponseEntity<AccountBalanceResponse> getBalance(@PathVariable("id") UUID id,
+                                                         @RequestParam(value = "asOf", required = false) String asOf,
+                                                         @RequestParam(value = "from", required = false) String from,
+                                                         @RequestParam(value = "to", required = false) String to,
+                                                         @AuthenticationPrincipal JwtPrincipal principal) {
+    UUID userId = callerId(principal);
+    if (!accountDirectory.get(id).isOwnedBy(userId)) {
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not owner of account");
+    }
+
+    if (from != null || to != null) {
+        if (from == null || to == null) throw new BadRequestException("Both from and to are required for a range");
+        return ResponseEntity.ok(balanceHistoryService.balanceRange(id, parseTimestamp(from), parseTimestamp(to)));
+    }
+    OffsetDateTime at = asOf != null ? parseTimestamp(asOf) : OffsetDateTime.now();
+    return ResponseEntity.ok(balanceHistoryService.balanceAsOf(id, at));
+}
+
+    private OffsetDateTime parseTimestamp(String iso) {
+        try {
+            return OffsetDateTime.parse(iso);
+        } catch (DateTimeParseException ex) {
+            throw new BadRequestException("Invalid ISO-8601 timestamp: " + iso);
+        }
+    }
+
+    // uid of the token the JWT filter already verified
+    private UUID callerId(JwtPrincipal principal) {
+        if (principal == null || principal.getUid() == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or invalid token");
+        }
+        return principal.getUid();
     }
 
     // DTO for account creation
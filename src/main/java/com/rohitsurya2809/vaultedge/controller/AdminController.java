@@ -1,25 +1,109 @@
 package com.rohitsurya2809.vaultedge.controller;
 
-import com.rohitsurya2809.vaultedge.model.Customer;
-import com.rohitsurya2809.vaultedge.repository.CustomerRepository;
+import com.rohitsurya2809.vaultedge.dto.AuditLogSliceResponse;
+import com.rohitsurya2809.vaultedge.dto.CustomerSliceResponse;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.service.AccountService;
+import com.rohitsurya2809.vaultedge.service.AuditQueryService;
+import com.rohitsurya2809.vaultedge.service.CustomerQueryService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/admin")
 public class AdminController {
 
-    private final CustomerRepository customerRepository;
+    private final CustomerQueryService customerQueryService;
+    private final AuditQueryService auditQueryService;
+    private final AccountService accountService;
 
-    public AdminController(CustomerRepository customerRepository) {
-        this.customerRepository = customerRepository;
+    public AdminController(CustomerQueryService customerQueryService, AuditQueryService auditQueryService,
+                           AccountService accountService) {
+        this.customerQueryService = customerQueryService;
+        this.auditQueryService = auditQueryService;
+        this.accountService = accountService;
     }
 
+    // Customers newest first; pass nextCursor back as ?cursor= for the next slice
     @GetMapping("/customers")
     @PreAuthorize("hasRole('ADMIN')")
-    public List<Customer> listAllCustomers() {
-        return customerRepository.findAll();
+    public CustomerSliceResponse listCustomers(
+            @RequestParam(value = "emailDomain", required = false) String emailDomain,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        return customerQueryService.search(emailDomain, fromIso, toIso, cursor, size);
+    }
+
+    // Same filters, streamed as NDJSON without buffering the result
+    @GetMapping("/customers/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(value = "emailDomain", required = false) String emailDomain,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso) {
+        StreamingResponseBody body = out -> customerQueryService.export(emailDomain, fromIso, toIso, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"customers.ndjson\"")
+                .body(body);
+    }
+
+    // Freeze / close / reactivate an account (status=ACTIVE|FROZEN|CLOSED)
+    @PutMapping("/accounts/{accountId}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> changeAccountStatus(
+            @PathVariable("accountId") UUID accountId,
+            @RequestParam("status") String status) {
+        Account acc = accountService.changeStatus(accountId, status);
+        return Map.of("id", acc.getId(), "status", acc.getStatus());
+    }
+
+    // Spread a hot account's balance over count sub-balance rows (count=0 turns it back into a plain account)
+    @PutMapping("/accounts/{accountId}/stripes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> changeAccountStripes(
+            @PathVariable("accountId") UUID accountId,
+            @RequestParam("count") int count) {
+        int n = accountService.changeStripeCount(accountId, count);
+        return Map.of("id", accountId, "stripeCount", n);
+    }
+
+    // Audit search, newest first; pass nextCursor back as ?cursor= for the next slice
+    @GetMapping("/audit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public AuditLogSliceResponse searchAudit(
+            @RequestParam(value = "userId", required = false) UUID userId,
+            @RequestParam(value = "entityId", required = false) UUID entityId,
+            @RequestParam(value = "action", required = false) String action,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        return auditQueryService.search(userId, entityId, action, fromIso, toIso, cursor, size);
+    }
+
+    // Same filters, streamed as NDJSON without buffering the result
+    @GetMapping("/audit/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAudit(
+            @RequestParam(value = "userId", required = false) UUID userId,
+            @RequestParam(value = "entityId", required = false) UUID entityId,
+            @RequestParam(value = "action", required = false) String action,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso) {
+        StreamingResponseBody body = out -> auditQueryService.export(userId, entityId, action, fromIso, toIso, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"audit.ndjson\"")
+                .body(body);
     }
 }
@@ -12,6 +12,8 @@ import com.rohitsurya2809.vaultedge.service.CustomerService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 public class AuthController {
@@ -27,9 +29,8 @@ public class AuthController {
      * Returns created Customer (you can adjust to return DTO).
      */
     @PostMapping("/register")
-    public ResponseEntity<Customer> register(@RequestBody RegisterRequest req) {
-        Customer saved = authService.register(req);
-        return ResponseEntity.status(201).body(saved);
+    public CompletableFuture<ResponseEntity<Customer>> register(@RequestBody RegisterRequest req) {
+        return authService.register(req).thenApply(saved -> ResponseEntity.status(201).body(saved));
     }
 
     /**
@@ -37,8 +38,7 @@ public class AuthController {
      */
     
     @PostMapping("/login")
-public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest req) {
-    LoginResponse resp = authService.login(req);
-    return ResponseEntity.ok(resp);
+public CompletableFuture<ResponseEntity<LoginResponse>> login(@RequestBody LoginRequest req) {
+    return authService.login(req).thenApply(ResponseEntity::ok);
 }
 }
\ No newline at end of file
@@ -1,19 +1,29 @@
 package com.rohitsurya2809.vaultedge.controller;
 
 import com.rohitsurya2809.vaultedge.dto.*;
-import com.rohitsurya2809.vaultedge.model.Account;
-import com.rohitsurya2809.vaultedge.service.AccountService;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import com.rohitsurya2809.vaultedge.service.AccountDirectory;
+import com.rohitsurya2809.vaultedge.service.BatchTransactionService;
+import com.rohitsurya2809.vaultedge.service.IdempotencyService;
+import com.rohitsurya2809.vaultedge.service.TransactionExportService;
 import com.rohitsurya2809.vaultedge.service.TransactionService;
-import com.rohitsurya2809.vaultedge.security.JwtUtil;
+import com.rohitsurya2809.vaultedge.security.JwtPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -26,51 +36,63 @@ import static org.springframework.http.HttpStatus.*;
 public class TransactionController {
 
     private final TransactionService transactionService;
-    private final JwtUtil jwtUtil;
-    private final AccountService accountService;
+    private final AccountDirectory accountDirectory;
+    private final BatchTransactionService batchTransactionService;
+    private final TransactionExportService transactionExportService;
+    private final IdempotencyService idempotencyService;
 
     public TransactionController(TransactionService transactionService,
-                                 JwtUtil jwtUtil,
-                                 AccountService accountService) {
+                                 AccountDirectory accountDirectory,
+                                 BatchTransactionService batchTransactionService,
+                                 TransactionExportService transactionExportService,
+                                 IdempotencyService idempotencyService) {
         this.transactionService = transactionService;
-        this.jwtUtil = jwtUtil;
-        this.accountService = accountService;
+        this.accountDirectory = accountDirectory;
+        this.batchTransactionService = batchTransactionService;
+        this.transactionExportService = transactionExportService;
+        this.idempotencyService = idempotencyService;
     }
 
-    // Helper: extract token (throws 401 if missing)
-    private String extractBearerOrThrow(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new ResponseStatusException(UNAUTHORIZED, "Missing Authorization header");
+    // Helper: caller userId from the token the JWT filter already verified (throws 401 if none)
+    private UUID getCallerId(JwtPrincipal principal) {
+        if (principal == null) {
+            throw new ResponseStatusException(UNAUTHORIZED, "Missing or invalid token");
         }
-        return authHeader.substring(7);
+        UUID uid = principal.getUid();
+        if (uid == null) throw new ResponseStatusException(UNAUTHORIZED, "Token missing uid");
+        return uid;
     }
 
-    // Helper: get caller userId from header (throws 401 if invalid token)
-    private UUID getCallerId(String authHeader) {
-        String token = extractBearerOrThrow(authHeader);
-        if (!jwtUtil.validateToken(token)) {
-            throw new ResponseStatusException(UNAUTHORIZED, "Invalid or expired token");
+    // Helper: directory entry of an account the caller owns (404 if missing, 403 if not theirs)
+    private AccountDirectory.Entry requireOwner(UUID accountId, UUID caller, String message) {
+        AccountDirectory.Entry acc = accountDirectory.get(accountId);
+        if (!acc.isOwnedBy(caller)) {
+            throw new ResponseStatusException(FORBIDDEN, message);
         }
-        UUID uid = jwtUtil.extractUserId(token);
-        if (uid == null) throw new ResponseStatusException(UNAUTHORIZED, "Token missing uid");
-        return uid;
+        return acc;
+    }
+
+    // Replays the stored JSON of an earlier request with the same Idempotency-Key, byte for byte
+    private static ResponseEntity<byte[]> replay(HttpStatus status, byte[] json) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     // Deposit: only account owner can deposit (Idempotency-Key supported)
     @Operation(summary = "Deposit to an account", description = "Deposit amount into account. Provide Idempotency-Key header to avoid duplicates.")
     @PostMapping("/accounts/{accountId}/deposit")
-    public ResponseEntity<TransactionResponse> deposit(
+    public ResponseEntity<?> deposit(
             @PathVariable("accountId") UUID accountId,
             @RequestBody DepositRequest req,
-            @RequestHeader(value = "Authorization", required = true) String auth,
+            @AuthenticationPrincipal JwtPrincipal principal,
             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-        UUID caller = getCallerId(auth);
-        Account acc = accountService.getAccount(accountId);
-        if (!acc.getCustomer().getId().equals(caller)) {
-            throw new ResponseStatusException(FORBIDDEN, "Not owner of account");
-        }
-        TransactionResponse resp = transactionService.deposit(accountId, req, idempotencyKey);
+        UUID caller = getCallerId(principal);
+        String key = idempotencyService.scope(caller, idempotencyKey);
+        byte[] replay = idempotencyService.getSerialized(key);
+        if (replay != null) return replay(CREATED, replay);
+
+        AccountDirectory.requireActive(accountId, requireOwner(accountId, caller, "Not owner of account"));
+        TransactionResponse resp = transactionService.deposit(accountId, req, key);
         
         return ResponseEntity.status(201).body(resp);
     }
@@ -78,71 +100,121 @@ public class TransactionController {
     // Withdraw: only owner (Idempotency-Key supported)
     @Operation(summary = "Withdraw from the account", description = "Withdraw amount from account. Provide Idempotency-Key header to avoid duplicates.")
     @PostMapping("/accounts/{accountId}/withdraw")
-    public ResponseEntity<TransactionResponse> withdraw(
+    public ResponseEntity<?> withdraw(
             @PathVariable("accountId") UUID accountId,
             @RequestBody WithdrawRequest req,
-            @RequestHeader(value = "Authorization", required = true) String auth,
+            @AuthenticationPrincipal JwtPrincipal principal,
             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-        UUID caller = getCallerId(auth);
-        Account acc = accountService.getAccount(accountId);
-        if (!acc.getCustomer().getId().equals(caller)) {
-            throw new ResponseStatusException(FORBIDDEN, "Not owner of account");
-        }
-        TransactionResponse resp = transactionService.withdraw(accountId, req, idempotencyKey);
+        UUID caller = getCallerId(principal);
+        String key = idempotencyService.scope(caller, idempotencyKey);
+        byte[] replay = idempotencyService.getSerialized(key);
+        if (replay != null) return replay(OK, replay);
+
+        AccountDirectory.requireActive(accountId, requireOwner(accountId, caller, "Not owner of account"));
+        TransactionResponse resp = transactionService.withdraw(accountId, req, key);
         return ResponseEntity.ok(resp);
     }
 
     // Transfer: caller must own the source account (fromAccountId). Idempotency-Key supported.
     @Operation(summary = "Transfer between accounts", description = "Transfer amount from one account to another. Provide Idempotency-Key header to avoid duplicates.")
     @PostMapping("/transfer")
-    public ResponseEntity<TransactionResponse> transfer(
+    public ResponseEntity<?> transfer(
             @RequestBody TransferRequest req,
-            @RequestHeader(value = "Authorization", required = true) String auth,
+            @AuthenticationPrincipal JwtPrincipal principal,
             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-        UUID caller = getCallerId(auth);
-        // ensure caller owns the source account
-        Account source = accountService.getAccount(req.getFromAccountId());
-        if (!source.getCustomer().getId().equals(caller)) {
+        UUID caller = getCallerId(principal);
+        String key = idempotencyService.scope(caller, idempotencyKey);
+        byte[] replay = idempotencyService.getSerialized(key);
+        if (replay != null) return replay(CREATED, replay);
+
+        // ensure caller owns the source account and both accounts can take the posting (one lookup for both)
+        if (req.getFromAccountId() == null || req.getToAccountId() == null) {
+            throw new BadRequestException("Both fromAccountId and toAccountId are required");
+        }
+        Map<UUID, AccountDirectory.Entry> accounts =
+                accountDirectory.findAll(List.of(req.getFromAccountId(), req.getToAccountId()));
+        AccountDirectory.Entry source = accounts.get(req.getFromAccountId());
+        AccountDirectory.Entry target = accounts.get(req.getToAccountId());
+        if (source == null) throw new NotFoundException("Source account not found: " + req.getFromAccountId());
+        if (!source.isOwnedBy(caller)) {
             throw new ResponseStatusException(FORBIDDEN, "Not owner of source account");
         }
-        TransactionResponse resp = transactionService.transfer(req, idempotencyKey);
+        if (target == null) throw new NotFoundException("Destination account not found: " + req.getToAccountId());
+        AccountDirectory.requireActive(req.getFromAccountId(), source);
+        AccountDirectory.requireActive(req.getToAccountId(), target);
+        AccountDirectory.requireSameCurrency(source, target);
+        TransactionResponse resp = transactionService.transfer(req, key);
         return ResponseEntity.status(201).body(resp);
     }
 
+    // Batch: streamed JSON array of deposit/withdraw/transfer items, each with its own idempotencyKey.
+    // Ownership is checked per item (caller must own the deposited/withdrawn/source account).
+    @Operation(summary = "Submit a batch of transactions", description = "Body is a JSON array of items {type, accountId | fromAccountId+toAccountId, amount, referenceId, idempotencyKey}. mode=BEST_EFFORT (default) isolates item failures; mode=ALL_OR_NOTHING rolls back the whole batch on the first failure.")
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse> batch(
+            HttpServletRequest request,
+            @RequestParam(value = "mode", defaultValue = "BEST_EFFORT") String mode,
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+
+        UUID caller = getCallerId(principal);
+        // read the body as a stream; items are parsed one by one by the service
+        BatchResponse resp = batchTransactionService.execute(request.getInputStream(), mode, caller);
+        return ResponseEntity.ok(resp);
+    }
+
     // List all transactions (non-paged) - only owner
     @Operation(summary = "List all transactions for an account", description = "List all transactions for an account.")
     @GetMapping("/accounts/{accountId}")
     public ResponseEntity<List<TransactionResponse>> listByAccount(
             @PathVariable("accountId") UUID accountId,
-            @RequestHeader(value = "Authorization", required = true) String auth) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
 
-        UUID caller = getCallerId(auth);
-        Account acc = accountService.getAccount(accountId);
-        if (!acc.getCustomer().getId().equals(caller)) {
-            throw new ResponseStatusException(FORBIDDEN, "Not owner of account");
-        }
+        UUID caller = getCallerId(principal);
+        requireOwner(accountId, caller, "Not owner of account");
         return ResponseEntity.ok(transactionService.listForAccount(accountId));
     }
 
+    // Streaming export of the full history - only owner
+    @Operation(summary = "Export all transactions for an account", description = "Streams the full history oldest-first as NDJSON (format=ndjson, default) or CSV (format=csv) without buffering it in memory.")
+    @GetMapping("/accounts/{accountId}/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable("accountId") UUID accountId,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID caller = getCallerId(principal);
+        requireOwner(accountId, caller, "Not owner of account");
+
+        TransactionExportService.Format fmt = TransactionExportService.Format.parse(format);
+        StreamingResponseBody body = out -> transactionExportService.export(accountId, fmt, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fmt.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions-" + accountId + "." + fmt.getExtension() + "\"")
+                .body(body);
+    }
+
     // Paged & filtered: only owner
-    @Operation(summary = "List paged transactions for an account", description = "List paged transactions for an account with optional filters: type, date range.")
+    @Operation(summary = "List paged transactions for an account", description = "List paged transactions for an account with optional filters: type, date range. Pass cursor (empty for the first slice, then the returned nextCursor) for keyset paging newest-first without a total count; page and sort are ignored in that mode.")
     @GetMapping("/accounts/{accountId}/transactions")
-    public ResponseEntity<Map<String, Object>> listByAccountPaged(
+    public ResponseEntity<?> listByAccountPaged(
             @PathVariable("accountId") UUID accountId,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "20") int size,
             @RequestParam(value = "sort", required = false) String sort,
             @RequestParam(value = "type", required = false) String type,
             @RequestParam(value = "from", required = false) String fromIso,
             @RequestParam(value = "to", required = false) String toIso,
-            @RequestHeader(value = "Authorization", required = true) String auth) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID caller = getCallerId(principal);
+        requireOwner(accountId, caller, "Not owner of account");
 
-        UUID caller = getCallerId(auth);
-        Account acc = accountService.getAccount(accountId);
-        if (!acc.getCustomer().getId().equals(caller)) {
-            throw new ResponseStatusException(FORBIDDEN, "Not owner of account");
+        if (cursor != null) {
+            return ResponseEntity.ok(transactionService.listForAccountAfter(accountId, cursor, size, type, fromIso, toIso));
         }
 
         Page<TransactionResponse> pg = transactionService.listForAccountPaged(accountId, page, size, sort, type, fromIso, toIso);
@@ -165,16 +237,28 @@ public class TransactionController {
             @PathVariable UUID accountId,
             @RequestParam(value = "from", required = false) String fromIso,
             @RequestParam(value = "to", required = false) String toIso,
-            @RequestHeader(value = "Authorization", required = true) String auth) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
 
-        UUID caller = getCallerId(auth);
-        Account acc = accountService.getAccount(accountId);
-
-        if (!acc.getCustomer().getId().equals(caller)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not owner of account");
-        }
+        UUID caller = getCallerId(principal);
+        requireOwner(accountId, caller, "Not owner of account");
 
         TransactionSummaryResponse summary = transactionService.getSummary(accountId, fromIso, toIso);
         return ResponseEntity.ok(summary);
     }
+
+    // Daily/weekly/monthly series from the rollups - only owner
+    @Operation(summary = "Get transaction series for an account", description = "Deposit/withdrawal totals per UTC day, ISO week or month (granularity=daily|weekly|monthly) between the ISO dates from and to (default: last 30 days).")
+    @GetMapping("/accounts/{accountId}/summary/series")
+    public ResponseEntity<TransactionSeriesResponse> getSeries(
+            @PathVariable UUID accountId,
+            @RequestParam(value = "granularity", defaultValue = "daily") String granularity,
+            @RequestParam(value = "from", required = false) String fromDate,
+            @RequestParam(value = "to", required = false) String toDate,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+
+        UUID caller = getCallerId(principal);
+        requireOwner(accountId, caller, "Not owner of account");
+
+        return ResponseEntity.ok(transactionService.getSeries(accountId, granularity, fromDate, toDate));
+    }
 }
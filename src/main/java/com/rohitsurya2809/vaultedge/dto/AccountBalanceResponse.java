@@ -0,0 +1,20 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+// Either asOf + balance, or from/to + opening/closing balance
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class AccountBalanceResponse {
+    private UUID accountId;
+    private OffsetDateTime asOf;
+    private BigDecimal balance;
+    private OffsetDateTime from;
+    private OffsetDateTime to;
+    private BigDecimal openingBalance;
+    private BigDecimal closingBalance;
+}
@@ -0,0 +1,18 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class AuditLogResponse {
+    private UUID id;
+    private String action;
+    private UUID userId;
+    private UUID entityId;
+    private String ipAddress;
+    @JsonRawValue
+    private String details;         // stored JSON, emitted as-is
+    private OffsetDateTime createdAt;
+}
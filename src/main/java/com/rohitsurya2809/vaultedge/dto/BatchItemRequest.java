@@ -0,0 +1,16 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BatchItemRequest {
+    private String type;            // DEPOSIT, WITHDRAW or TRANSFER
+    private UUID accountId;         // DEPOSIT / WITHDRAW
+    private UUID fromAccountId;     // TRANSFER
+    private UUID toAccountId;       // TRANSFER
+    private BigDecimal amount;
+    private UUID referenceId;       // optional, TRANSFER only
+    private String idempotencyKey;  // optional, per item
+}
@@ -0,0 +1,12 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import lombok.*;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BatchItemResult {
+    private int index;
+    private String status;          // SUCCESS, REPLAYED, FAILED, ROLLED_BACK, SKIPPED
+    private String idempotencyKey;
+    private TransactionResponse transaction;
+    private String error;
+}
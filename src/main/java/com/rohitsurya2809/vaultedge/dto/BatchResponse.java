@@ -0,0 +1,14 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class BatchResponse {
+    private String mode;            // ALL_OR_NOTHING or BEST_EFFORT
+    private boolean committed;      // false when an all-or-nothing batch was rolled back
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> results;
+}
@@ -12,6 +12,7 @@ public class TransactionResponse {
     private UUID referenceId;
     private String type;
     private BigDecimal amount;
+    // null for postings on striped accounts, which have no exact running balance (see BalanceStripes)
     private BigDecimal balanceAfter;
     private String status;
     private OffsetDateTime createdAt;
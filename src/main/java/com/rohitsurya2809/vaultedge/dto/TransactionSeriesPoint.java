@@ -0,0 +1,14 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class TransactionSeriesPoint {
+    private LocalDate periodStart;  // day, Monday of the ISO week, or first of the month (UTC)
+    private BigDecimal totalDeposits;
+    private BigDecimal totalWithdrawals;
+    private BigDecimal netFlow;
+    private long count;
+}
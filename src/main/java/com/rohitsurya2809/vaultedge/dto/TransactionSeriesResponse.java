@@ -0,0 +1,15 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import lombok.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class TransactionSeriesResponse {
+    private UUID accountId;
+    private String granularity;     // DAILY, WEEKLY or MONTHLY
+    private LocalDate from;
+    private LocalDate to;
+    private List<TransactionSeriesPoint> points;  // periods without transactions are omitted
+}
@@ -0,0 +1,13 @@
+package com.rohitsurya2809.vaultedge.dto;
+
+import lombok.*;
+import java.util.List;
+
+// Count-less page for keyset paging; pass nextCursor back as ?cursor= to continue
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class TransactionSliceResponse {
+    private List<TransactionResponse> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;      // null on the last slice
+}
@@ -0,0 +1,5 @@
+package com.rohitsurya2809.vaultedge.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String msg) { super(msg); }
+}
@@ -1,6 +1,7 @@
 package com.rohitsurya2809.vaultedge.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -41,6 +42,50 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(err, HttpStatus.BAD_REQUEST);
     }
 
+    // 409 - conflicting concurrent request (your custom)
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiError> handleConflict(ConflictException ex, HttpServletRequest req) {
+        ApiError err = new ApiError(HttpStatus.CONFLICT.value(),
+                "CONFLICT",
+                ex.getMessage(),
+                req.getRequestURI());
+        return new ResponseEntity<>(err, HttpStatus.CONFLICT);
+    }
+
+    // 409 - lost a race on a row outside the retried posting paths (e.g. a status change)
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ApiError> handleConcurrencyFailure(ConcurrencyFailureException ex, HttpServletRequest req) {
+        ApiError err = new ApiError(HttpStatus.CONFLICT.value(),
+                "CONCURRENT_UPDATE",
+                "The resource was modified concurrently, please retry",
+                req.getRequestURI());
+        return new ResponseEntity<>(err, HttpStatus.CONFLICT);
+    }
+
+    // 503 - password hashing pool saturated (your custom)
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiError> handleBusy(ServiceBusyException ex, HttpServletRequest req) {
+        ApiError err = new ApiError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "SERVICE_BUSY",
+                ex.getMessage(),
+                req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(err);
+    }
+
+    // 503 - posting not confirmed in time; it may still be applied, so it is not reported as failed
+    @ExceptionHandler(PostingInDoubtException.class)
+    public ResponseEntity<ApiError> handleInDoubt(PostingInDoubtException ex, HttpServletRequest req) {
+        ApiError err = new ApiError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "POSTING_IN_DOUBT",
+                ex.getMessage() + "; retry with the same Idempotency-Key to get its outcome",
+                req.getRequestURI());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(err);
+    }
+
     // validation errors from @Valid
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> handleValidation(MethodArgumentNotValidException ex, HttpServletRequest req) {
@@ -121,6 +166,10 @@ public class GlobalExceptionHandler {
     // catch-all
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleAll(Exception ex, HttpServletRequest req) {
+        // e.g. the DB bulkhead refusing a connection, wrapped by the transaction manager
+        for (Throwable t = ex.getCause(); t != null; t = t.getCause()) {
+            if (t instanceof ServiceBusyException busy) return handleBusy(busy, req);
+        }
         ApiError err = new ApiError(HttpStatus.INTERNAL_SERVER_ERROR.value(),
                 "INTERNAL_ERROR",
                 ex.getMessage() != null ? ex.getMessage() : "Unexpected error",
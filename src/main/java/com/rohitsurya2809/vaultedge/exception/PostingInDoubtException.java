@@ -0,0 +1,19 @@
+package com.rohitsurya2809.vaultedge.exception;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A posting whose outcome was not known when the caller stopped waiting: it may still be (or
+ * already have been) applied, so it must not be reported or treated as failed.
+ */
+public class PostingInDoubtException extends RuntimeException {
+    private final CompletableFuture<?> outcome;
+
+    public PostingInDoubtException(String msg, CompletableFuture<?> outcome) {
+        super(msg);
+        this.outcome = outcome;
+    }
+
+    /** Completes with the posting's real result once known; null when it can no longer be determined. */
+    public CompletableFuture<?> getOutcome() { return outcome; }
+}
@@ -1,7 +1,9 @@
 package com.rohitsurya2809.vaultedge.model;
 
+import com.rohitsurya2809.vaultedge.config.Ids;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.UUID;
@@ -13,11 +15,11 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Account {
+public class Account extends AssignedIdEntity {
 
     @Id
     @Column(columnDefinition = "BINARY(16)", nullable = false)
-    private UUID id = UUID.randomUUID();
+    private UUID id = Ids.next();
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false, columnDefinition = "BINARY(16)")
@@ -41,6 +43,16 @@ public class Account {
     @Version
     private Long version;
 
+    // 0 = plain account; otherwise the number of account_balance_stripes rows, managed by BalanceStripes
+    @ColumnDefault("0")
+    @Column(name = "stripe_count", nullable = false, insertable = false, updatable = false)
+    private int stripeCount;
+
+    // version of the ledger engine row the balance was last written from, managed by LedgerFlusher
+    @ColumnDefault("0")
+    @Column(name = "ledger_version", nullable = false, insertable = false, updatable = false)
+    private long ledgerVersion;
+
     @Column(name = "created_at", columnDefinition = "TIMESTAMP")
     private OffsetDateTime createdAt;
 
@@ -49,7 +61,7 @@ public class Account {
 
     @PrePersist
     public void prePersist() {
-        if (this.id == null) this.id = UUID.randomUUID();
+        if (this.id == null) this.id = Ids.next();
         this.createdAt = OffsetDateTime.now();
         this.updatedAt = OffsetDateTime.now();
     }
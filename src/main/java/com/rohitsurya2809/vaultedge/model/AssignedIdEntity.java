@@ -0,0 +1,32 @@
+package com.rohitsurya2809.vaultedge.model;
+
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * Base for entities whose UUID id is assigned in Java (see {@code Ids}). With a non-null id
+ * Spring Data's save() would merge, i.e. SELECT the row before inserting it; instead an entity
+ * counts as new until it has been loaded or persisted.
+ */
+@MappedSuperclass
+public abstract class AssignedIdEntity implements Persistable<UUID> {
+
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+}
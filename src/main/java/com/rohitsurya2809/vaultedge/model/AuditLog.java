@@ -1,5 +1,6 @@
 package com.rohitsurya2809.vaultedge.model;
 
+import com.rohitsurya2809.vaultedge.config.Ids;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -7,17 +8,19 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {@Index(name = "idx_audit_logs_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_audit_logs_entity_created", columnList = "entity_id, created_at"),
+        @Index(name = "idx_audit_logs_action_created", columnList = "action, created_at")})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class AuditLog {
+public class AuditLog extends AssignedIdEntity {
 
     @Id
-    @GeneratedValue
-    private UUID id;
+    @Builder.Default
+    private UUID id = Ids.next();
 
     @Column(nullable = false)
     private String action; // DEPOSIT, WITHDRAW, TRANSFER, LOGIN_SUCCESS, LOGIN_FAILED
@@ -34,6 +37,7 @@ public class AuditLog {
     @Column(columnDefinition = "JSON")
     private String details;
 
-    @Column(nullable = false)
+    // named explicitly: the @Index column lists above refer to the physical column
+    @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 }
@@ -1,5 +1,6 @@
 package com.rohitsurya2809.vaultedge.model;
 
+import com.rohitsurya2809.vaultedge.config.Ids;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.OffsetDateTime;
@@ -12,11 +13,11 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class AuthUser {
+public class AuthUser extends AssignedIdEntity {
 
     @Id
     @Column(columnDefinition = "BINARY(16)", nullable = false)
-    private UUID id = UUID.randomUUID();
+    private UUID id = Ids.next();
 
     // link to Customer (one-to-one). keep LAZY to avoid eager fetch.
     @OneToOne(fetch = FetchType.LAZY)
@@ -43,7 +44,7 @@ public class AuthUser {
 
     @PrePersist
     public void prePersist() {
-        if (this.id == null) this.id = UUID.randomUUID();
+        if (this.id == null) this.id = Ids.next();
         this.createdAt = OffsetDateTime.now();
         this.updatedAt = OffsetDateTime.now();
     }
@@ -1,19 +1,21 @@
 package com.rohitsurya2809.vaultedge.model;
 
+import com.rohitsurya2809.vaultedge.config.Ids;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 @Entity
-@Table(name = "customers")
+@Table(name = "customers", indexes = {@Index(name = "idx_customers_created", columnList = "created_at"),
+        @Index(name = "idx_customers_email_domain_created", columnList = "email_domain, created_at")})
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
-public class Customer {
+public class Customer extends AssignedIdEntity {
 
     @Id
     @Column(columnDefinition = "BINARY(16)", nullable = false)
     @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id = Ids.next();
 
     @Column(name = "full_name", nullable = false)
     private String fullName;
@@ -21,6 +23,11 @@ public class Customer {
     @Column(nullable = false, unique = true)
     private String email;
 
+    // generated by MySQL from email (see V12), read-only here
+    @JsonIgnore
+    @Column(name = "email_domain", insertable = false, updatable = false)
+    private String emailDomain;
+
     @Column(nullable = false)
     private String password;
 
@@ -37,7 +44,7 @@ public class Customer {
 
     @PrePersist
     public void prePersist() {
-        if (this.id == null) this.id = UUID.randomUUID();
+        if (this.id == null) this.id = Ids.next();
         this.createdAt = OffsetDateTime.now();
         this.updatedAt = OffsetDateTime.now();
     }
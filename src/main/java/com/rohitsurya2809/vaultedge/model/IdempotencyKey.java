@@ -11,9 +11,15 @@ import java.time.OffsetDateTime;
 @Table(name = "idempotency_keys")
 public class IdempotencyKey {
 
+    // SHA-256 hex of customer id + client key, see IdempotencyService#scope
     @Id
+    @Column(columnDefinition = "CHAR(64)")
     private String id;
 
+    // IN_PROGRESS while the first request holding the key runs, then COMPLETED
+    @Column(name = "status", nullable = false)
+    private String status = "COMPLETED";
+
     @Lob
     @Column(name = "response_json", columnDefinition = "TEXT")
     private String responseJson;
@@ -31,6 +37,9 @@ public class IdempotencyKey {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
     public String getResponseJson() { return responseJson; }
     public void setResponseJson(String responseJson) { this.responseJson = responseJson; }
 
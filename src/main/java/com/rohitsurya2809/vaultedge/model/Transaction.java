@@ -1,5 +1,6 @@
 package com.rohitsurya2809.vaultedge.model;
 
+import com.rohitsurya2809.vaultedge.config.Ids;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
@@ -7,13 +8,14 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "transactions",indexes = {@Index(name = "idx_transaction_account", columnList = "account_id")})
+@Table(name = "transactions",indexes = {@Index(name = "idx_transaction_account", columnList = "account_id"),
+        @Index(name = "idx_transactions_account_created", columnList = "account_id, created_at, id")})
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
-public class Transaction {
+public class Transaction extends AssignedIdEntity {
 
     @Id
     @Column(columnDefinition = "BINARY(16)", nullable = false)
-    private UUID id = UUID.randomUUID();
+    private UUID id = Ids.next();
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id", nullable = false, columnDefinition = "BINARY(16)")
@@ -40,7 +42,7 @@ public class Transaction {
 
     @PrePersist
     public void prePersist() {
-        if (this.id == null) this.id = UUID.randomUUID();
+        if (this.id == null) this.id = Ids.next();
         this.createdAt = OffsetDateTime.now();
     }
-}
\ No newline at end of file
+}
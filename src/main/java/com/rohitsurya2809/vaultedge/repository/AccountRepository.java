@@ -2,12 +2,47 @@ package com.rohitsurya2809.vaultedge.repository;
 
 import com.rohitsurya2809.vaultedge.model.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface AccountRepository extends JpaRepository<Account, UUID> {
+
+    String ACCOUNT_VIEW = "select a.id as id, c.id as customerId, c.fullName as customerFullName, " +
+            "c.email as customerEmail, a.accountNumber as accountNumber, a.accountType as accountType, " +
+            "a.currency as currency, a.balance as balance, a.stripeCount as stripeCount, a.status as status, " +
+            "a.version as version, a.createdAt as createdAt, a.updatedAt as updatedAt from Account a join a.customer c";
+
     List<Account> findByCustomerId(UUID customerId);
     Optional<Account> findByAccountNumber(String accountNumber);
+
+    /**
+     * Account plus owner summary in one joined row, for the read endpoints (no lazy customer hop).
+     */
+    @Query(ACCOUNT_VIEW + " where a.id = :id")
+    Optional<AccountView> findViewById(@Param("id") UUID id);
+
+    @Query(ACCOUNT_VIEW + " where c.id = :customerId order by a.createdAt, a.id")
+    List<AccountView> findViewsByCustomerId(@Param("customerId") UUID customerId);
+
+    interface AccountView {
+        UUID getId();
+        UUID getCustomerId();
+        String getCustomerFullName();
+        String getCustomerEmail();
+        String getAccountNumber();
+        String getAccountType();
+        String getCurrency();
+        BigDecimal getBalance();
+        int getStripeCount();
+        String getStatus();
+        Long getVersion();
+        OffsetDateTime getCreatedAt();
+        OffsetDateTime getUpdatedAt();
+    }
 }
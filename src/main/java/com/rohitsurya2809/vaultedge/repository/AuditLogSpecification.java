@@ -0,0 +1,52 @@
+package com.rohitsurya2809.vaultedge.repository;
+
+import com.rohitsurya2809.vaultedge.model.AuditLog;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public final class AuditLogSpecification {
+
+    private AuditLogSpecification() {}
+
+    public static Specification<AuditLog> forUser(UUID userId) {
+        return (root, query, cb) -> userId == null ? null : cb.equal(root.get("userId"), userId);
+    }
+
+    public static Specification<AuditLog> forEntity(UUID entityId) {
+        return (root, query, cb) -> entityId == null ? null : cb.equal(root.get("entityId"), entityId);
+    }
+
+    // exact match, so the (action, created_at) index stays usable
+    public static Specification<AuditLog> withAction(String action) {
+        return (root, query, cb) -> {
+            if (action == null || action.isBlank()) return null;
+            return cb.equal(root.get("action"), action.trim().toUpperCase());
+        };
+    }
+
+    public static Specification<AuditLog> fromDate(OffsetDateTime from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<AuditLog> toDate(OffsetDateTime to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThanOrEqualTo(root.get("createdAt"), to);
+    }
+
+    // Keyset condition for newest-first paging: rows strictly after (createdAt, id) in (created_at DESC, id DESC) order
+    public static Specification<AuditLog> before(OffsetDateTime createdAt, UUID id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    // Combine helper
+    public static Specification<AuditLog> build(UUID userId, UUID entityId, String action, OffsetDateTime from, OffsetDateTime to) {
+        return Specification.where(forUser(userId))
+                .and(forEntity(entityId))
+                .and(withAction(action))
+                .and(fromDate(from))
+                .and(toDate(to));
+    }
+}
@@ -0,0 +1,44 @@
+package com.rohitsurya2809.vaultedge.repository;
+
+import com.rohitsurya2809.vaultedge.model.Customer;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public final class CustomerSpecification {
+
+    private CustomerSpecification() {}
+
+    // exact match on the generated email_domain column, so the (email_domain, created_at) index is used
+    public static Specification<Customer> withEmailDomain(String domain) {
+        return (root, query, cb) -> {
+            if (domain == null || domain.isBlank()) return null;
+            String d = domain.trim().toLowerCase();
+            if (d.startsWith("@")) d = d.substring(1);
+            return cb.equal(root.get("emailDomain"), d);
+        };
+    }
+
+    public static Specification<Customer> fromDate(OffsetDateTime from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<Customer> toDate(OffsetDateTime to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThanOrEqualTo(root.get("createdAt"), to);
+    }
+
+    // Keyset condition for newest-first paging: rows strictly after (createdAt, id) in (created_at DESC, id DESC) order
+    public static Specification<Customer> before(OffsetDateTime createdAt, UUID id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    // Combine helper
+    public static Specification<Customer> build(String emailDomain, OffsetDateTime from, OffsetDateTime to) {
+        return Specification.where(withEmailDomain(emailDomain))
+                .and(fromDate(from))
+                .and(toDate(to));
+    }
+}
@@ -1,14 +1,22 @@
 package com.rohitsurya2809.vaultedge.repository;
 
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
 import com.rohitsurya2809.vaultedge.model.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface TransactionRepository extends JpaRepository<Transaction, UUID>, JpaSpecificationExecutor<Transaction> {
-    List<Transaction> findByAccountIdOrderByCreatedAtDesc(UUID accountId);
     Optional<Transaction> findByReferenceId(UUID referenceId);
+
+    // response rows straight from the table, newest first
+    @Query("select new com.rohitsurya2809.vaultedge.dto.TransactionResponse(" +
+           "t.id, t.account.id, t.referenceId, t.type, t.amount, t.balanceAfter, t.status, t.createdAt) " +
+           "from Transaction t where t.account.id = :accountId order by t.createdAt desc, t.id desc")
+    List<TransactionResponse> findResponsesByAccountId(@Param("accountId") UUID accountId);
 }
@@ -36,6 +36,13 @@ public final class TransactionSpecification {
         };
     }
 
+    // Keyset condition for newest-first paging: rows strictly after (createdAt, id) in (created_at DESC, id DESC) order
+    public static Specification<Transaction> before(OffsetDateTime createdAt, UUID id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
     // Combine helper
     public static Specification<Transaction> build(UUID accountId, String type, OffsetDateTime from, OffsetDateTime to) {
         Specification<Transaction> spec = Specification.where(forAccount(accountId));
@@ -0,0 +1,124 @@
+package com.rohitsurya2809.vaultedge.security;
+
+import com.rohitsurya2809.vaultedge.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt on its own bounded pool, so a burst of logins cannot take every servlet thread.
+ *
+ * auth.hashing.threads workers share a queue of auth.hashing.queue-capacity tasks; once it is
+ * full new work is refused with {@link ServiceBusyException} (503 + Retry-After) instead of
+ * queueing behind the burst. {@link #submit} runs a whole login/registration on the pool;
+ * {@link #encode}/{@link #matches} called from anywhere else hop onto the pool and wait, and
+ * run inline when already on it (e.g. DaoAuthenticationProvider inside a submitted login).
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final ThreadLocal<Boolean> ON_POOL = ThreadLocal.withInitial(() -> false);
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int threads;
+    private final int queueCapacity;
+    private final long retryAfterSeconds;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    private ThreadPoolExecutor pool;
+
+    public BoundedPasswordEncoder(MeterRegistry meterRegistry,
+                                  @Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                                  @Value("${auth.hashing.bcrypt-strength:10}") int strength) {
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        // default: half the cores, the rest stay with the transaction endpoints
+        this.threads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        this.meterRegistry = meterRegistry;
+        this.rejected = Counter.builder("auth.hashing.rejected")
+                .description("Password hashing tasks refused because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(() -> {
+                        ON_POOL.set(true);
+                        r.run();
+                    }, "password-hashing-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        meterRegistry.gauge("auth.hashing.queue_depth", pool, p -> p.getQueue().size());
+        meterRegistry.gauge("auth.hashing.active", pool, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (pool == null) return;
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs {@code task} on the hashing pool, or throws {@link ServiceBusyException} right away
+     * if the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (ON_POOL.get()) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, pool);
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new ServiceBusyException("Authentication is busy, retry shortly", retryAfterSeconds);
+        }
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> bcrypt.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(() -> bcrypt.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw ex;
+        }
+    }
+}
@@ -6,6 +6,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -14,17 +16,35 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Authenticates requests carrying a Bearer token.
+ *
+ * In stateless mode (jwt.stateless=true, off unless configured) the Authentication is built
+ * from the verified claims alone; disabled users and role/password changes are enforced through
+ * the in-memory {@link RevokedUserRegistry} instead of an auth_users lookup per request.
+ * Otherwise the user is loaded through {@link CustomUserDetailsService} on every request.
+ */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final RevokedUserRegistry revokedUsers;
+    private final boolean stateless;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil,
+                                   CustomUserDetailsService userDetailsService,
+                                   RevokedUserRegistry revokedUsers,
+                                   boolean stateless) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.revokedUsers = revokedUsers;
+        this.stateless = stateless;
     }
 
     @Override
@@ -53,22 +73,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
-            // quick header inspect
-            String username = jwtUtil.extractUsername(token);
-if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-    if (jwtUtil.validateToken(token)) {
-        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-           userDetails, null, userDetails.getAuthorities());
-        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-        SecurityContextHolder.getContext().setAuthentication(auth);
-    }
-}
-
+            // verified once per request (or served from the verified-token cache)
+            JwtPrincipal principal = jwtUtil.authenticate(token);
+            if (principal.getUsername() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                Collection<? extends GrantedAuthority> authorities = authorities(principal);
+                if (authorities != null) {
+                    UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                            principal, null, authorities);
+                    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(auth);
+                }
+            }
         } catch (Exception ex) {
             log.debug("JWT authentication processing failed: {}", ex.toString());
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // authorities for a verified token, or null if the user may no longer use it
+    private Collection<? extends GrantedAuthority> authorities(JwtPrincipal principal) {
+        if (!stateless) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(principal.getUsername());
+            return userDetails.getAuthorities();
+        }
+        if (principal.isExpired(Instant.now()) || revokedUsers.isRevoked(principal.getUid(), principal.getIssuedAt())) {
+            log.debug("Rejected revoked token for {}", principal.getUsername());
+            return null;
+        }
+        return principal.getRoles().stream().map(SimpleGrantedAuthority::new).toList();
+    }
 }
@@ -0,0 +1,68 @@
+package com.rohitsurya2809.vaultedge.security;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable result of verifying a bearer token once. The JWT filter stores it as the
+ * authentication principal; controllers read it with {@code @AuthenticationPrincipal}.
+ */
+public final class JwtPrincipal {
+
+    private final UUID uid;
+    private final String username;
+    private final List<String> roles;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+
+    public JwtPrincipal(UUID uid, String username, List<String> roles, Instant issuedAt, Instant expiresAt) {
+        this.uid = uid;
+        this.username = username;
+        this.roles = List.copyOf(roles);
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public UUID getUid() {
+        return uid;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /** Role names with the ROLE_ prefix, e.g. ROLE_USER. */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+
+    // the "roles" claim (and auth_users.roles) is a comma separated list, with or without ROLE_;
+    // same defaults as CustomUserDetailsService
+    static List<String> parseRoles(Object raw) {
+        String roles = raw == null ? "USER" : raw.toString();
+        return Arrays.stream(roles.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> s.startsWith("ROLE_") ? s : "ROLE_" + s)
+                .toList();
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -1,30 +1,110 @@
 package com.rohitsurya2809.vaultedge.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies the HS256 bearer tokens.
+ *
+ * Requests authenticate through {@link #authenticate(String)}, which verifies a token once and
+ * keeps the resulting {@link JwtPrincipal} in a bounded cache keyed by the token's SHA-256
+ * until the token expires, so a client reusing its token skips signature verification and
+ * claims parsing. Only tokens that verified are cached, and the key is a digest, so the cache
+ * neither holds raw tokens nor can be fed with forged ones.
+ */
 @Component
 public class JwtUtil {
 
     private final Key signingKey;
     private final long expirationSeconds;
+    // thread-safe and reusable; building one per call re-derives the key and resolvers every time
+    private final JwtParser parser;
+    private final Cache<String, JwtPrincipal> verified;
 
     public JwtUtil(
             @Value("${jwt.secret:1234567890abcdefghijklmnopqrstuvwxyz}") String secret,
-            @Value("${jwt.expiration:3600}") long expirationSeconds) {
+            @Value("${jwt.expiration:3600}") long expirationSeconds,
+            @Value("${jwt.cache.max-entries:10000}") long cacheMaxEntries,
+            MeterRegistry meterRegistry) {
         // Ensure secret has enough entropy; decode as bytes and create HMAC key.
         // If secret is base64-encoded you can decode; here we use raw bytes of the string.
         this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationSeconds = expirationSeconds;
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, cacheMaxEntries))
+                .expireAfter(new Expiry<String, JwtPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtPrincipal p, long currentTime) {
+                        if (p.getExpiresAt() == null) return TimeUnit.SECONDS.toNanos(expirationSeconds);
+                        long millis = p.getExpiresAt().toEpochMilli() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtPrincipal p, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, p, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtPrincipal p, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+    }
+
+    /**
+     * Verifies the token (or finds it among recently verified ones) and returns its principal.
+     * Throws {@link JwtException} if the token is invalid or expired.
+     */
+    public JwtPrincipal authenticate(String token) {
+        String key = digest(token);
+        JwtPrincipal cached = verified.getIfPresent(key);
+        if (cached != null && !cached.isExpired(Instant.now())) return cached;
+
+        Claims claims = extractAllClaims(token);
+        Date iat = claims.getIssuedAt();
+        Date exp = claims.getExpiration();
+        JwtPrincipal principal = new JwtPrincipal(
+                toUuid(claims.get("uid")),
+                claims.getSubject(),
+                JwtPrincipal.parseRoles(claims.get("roles")),
+                iat != null ? iat.toInstant() : null,
+                exp != null ? exp.toInstant() : null);
+        verified.put(key, principal);
+        return principal;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -62,7 +142,7 @@ public class JwtUtil {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(token);
+            authenticate(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             // includes ExpiredJwtException, UnsupportedJwtException, MalformedJwtException, SecurityException
@@ -74,15 +154,17 @@ public class JwtUtil {
      * Extract subject (username/email).
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return authenticate(token).getUsername();
     }
 
     /**
      * Extract userId claim (uid) as UUID if present, otherwise null.
      */
     public UUID extractUserId(String token) {
-        Claims claims = extractAllClaims(token);
-        Object uid = claims.get("uid");
+        return authenticate(token).getUid();
+    }
+
+    private static UUID toUuid(Object uid) {
         if (uid == null) return null;
         try {
             return UUID.fromString(uid.toString());
@@ -100,11 +182,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -0,0 +1,106 @@
+package com.rohitsurya2809.vaultedge.security;
+
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory view of the users whose tokens must no longer be accepted, for stateless
+ * (claims-only) authentication.
+ *
+ * Refreshed every jwt.revocation.refresh-seconds from auth_users: users that are disabled, and
+ * users whose row changed (roles, password, enabled; updated_at is ON UPDATE CURRENT_TIMESTAMP)
+ * within the token lifetime. A token is rejected if its user is disabled or it was issued
+ * before that change, so the client has to log in again and gets current roles. Keys are the
+ * token's uid (the customer id, see AuthService.login).
+ */
+@Component
+public class RevokedUserRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RevokedUserRegistry.class);
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    private final JdbcTemplate jdbc;
+    private final long refreshSeconds;
+    private final long tokenLifetimeSeconds;
+
+    private volatile Set<UUID> disabled = Set.of();
+    private volatile Map<UUID, Instant> changedAt = Map.of();
+    private ScheduledExecutorService scheduler;
+
+    public RevokedUserRegistry(JdbcTemplate jdbc,
+                               @Value("${jwt.revocation.refresh-seconds:15}") long refreshSeconds,
+                               @Value("${jwt.expiration:3600}") long tokenLifetimeSeconds) {
+        this.jdbc = jdbc;
+        this.refreshSeconds = Math.max(1, refreshSeconds);
+        this.tokenLifetimeSeconds = Math.max(1, tokenLifetimeSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "revoked-users");
+            t.setDaemon(true);
+            return t;
+        });
+        refreshQuietly();
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * True if a token for {@code uid} issued at {@code issuedAt} must be rejected.
+     */
+    public boolean isRevoked(UUID uid, Instant issuedAt) {
+        if (uid == null) return false;
+        if (disabled.contains(uid)) return true;
+        Instant changed = changedAt.get(uid);
+        // updated_at has second precision, like iat
+        return changed != null && (issuedAt == null || issuedAt.getEpochSecond() < changed.getEpochSecond());
+    }
+
+    public void refresh() {
+        Set<UUID> nowDisabled = new HashSet<>();
+        jdbc.query("SELECT customer_id FROM auth_users WHERE enabled = FALSE",
+                rs -> { nowDisabled.add(UUIDS.convertToEntityAttribute(rs.getBytes(1))); });
+
+        // older changes cannot affect a token that is still valid
+        Timestamp since = Timestamp.from(Instant.now().minusSeconds(tokenLifetimeSeconds));
+        Map<UUID, Instant> changed = new HashMap<>();
+        jdbc.query("SELECT customer_id, updated_at FROM auth_users WHERE updated_at > ?",
+                rs -> { changed.put(UUIDS.convertToEntityAttribute(rs.getBytes(1)), rs.getTimestamp(2).toInstant()); },
+                since);
+
+        this.disabled = Set.copyOf(nowDisabled);
+        this.changedAt = Map.copyOf(changed);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            // keep enforcing the last snapshot until the database answers again
+            log.warn("Revoked-user refresh failed: {}", ex.toString());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * accountId -> (owner, status, currency) for authorization checks, so they do not load the
+ * Account entity (and its customer proxy) on every request.
+ *
+ * Entries are loaded on first use, in one query for a whole batch of ids, and bounded by
+ * accounts.directory.max-entries. The owner never changes; status changes made through
+ * {@link AccountService#changeStatus} invalidate the entry after commit, and
+ * accounts.directory.ttl-seconds bounds how long another instance's change can go unseen.
+ * Unknown ids are not cached, so a newly created account is visible right away.
+ */
+@Component
+public class AccountDirectory {
+
+    public static final String ACTIVE = "ACTIVE";
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+    // stays well below MySQL's placeholder limit
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final JdbcTemplate jdbc;
+    private final Cache<UUID, Entry> cache;
+
+    public AccountDirectory(JdbcTemplate jdbc,
+                            MeterRegistry meterRegistry,
+                            @Value("${accounts.directory.max-entries:100000}") long maxEntries,
+                            @Value("${accounts.directory.ttl-seconds:60}") long ttlSeconds) {
+        this.jdbc = jdbc;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxEntries))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, ttlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accountDirectory");
+    }
+
+    /**
+     * The entry for {@code accountId}, or null if there is no such account.
+     */
+    public Entry find(UUID accountId) {
+        return findAll(List.of(accountId)).get(accountId);
+    }
+
+    public Entry get(UUID accountId) {
+        Entry e = find(accountId);
+        if (e == null) throw new NotFoundException("Account not found: " + accountId);
+        return e;
+    }
+
+    /**
+     * Entries for every id that exists; missing accounts are left out of the map.
+     */
+    public Map<UUID, Entry> findAll(Collection<UUID> accountIds) {
+        return cache.getAll(new LinkedHashSet<>(accountIds), this::load);
+    }
+
+    public void invalidate(UUID accountId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // evicting before commit would let a concurrent reader cache the old row again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(accountId);
+                }
+            });
+        } else {
+            cache.invalidate(accountId);
+        }
+    }
+
+    private Map<UUID, Entry> load(Set<? extends UUID> ids) {
+        Map<UUID, Entry> out = new HashMap<>(ids.size() * 2);
+        List<UUID> pending = new ArrayList<>(ids);
+        for (int i = 0; i < pending.size(); i += MAX_IDS_PER_QUERY) {
+            List<UUID> part = pending.subList(i, Math.min(pending.size(), i + MAX_IDS_PER_QUERY));
+            Object[] args = new Object[part.size()];
+            for (int j = 0; j < args.length; j++) args[j] = UUIDS.convertToDatabaseColumn(part.get(j));
+            String in = String.join(",", Collections.nCopies(args.length, "?"));
+            jdbc.query("SELECT id, customer_id, status, currency FROM accounts WHERE id IN (" + in + ")", rs -> {
+                out.put(UUIDS.convertToEntityAttribute(rs.getBytes(1)), new Entry(
+                        UUIDS.convertToEntityAttribute(rs.getBytes(2)),
+                        rs.getString(3) != null ? rs.getString(3) : ACTIVE,
+                        rs.getString(4)));
+            }, args);
+        }
+        return out;
+    }
+
+    // ---------- Checks shared by the single-item and batch endpoints ----------
+
+    public static void requireActive(UUID accountId, Entry e) {
+        if (!e.isActive()) throw new BadRequestException("Account " + accountId + " is " + e.getStatus());
+    }
+
+    public static void requireSameCurrency(Entry from, Entry to) {
+        if (!Objects.equals(from.getCurrency(), to.getCurrency())) {
+            throw new BadRequestException("Currency mismatch: " + from.getCurrency() + " -> " + to.getCurrency());
+        }
+    }
+
+    public static final class Entry {
+        private final UUID customerId;
+        private final String status;
+        private final String currency;
+
+        Entry(UUID customerId, String status, String currency) {
+            this.customerId = customerId;
+            this.status = status;
+            this.currency = currency;
+        }
+
+        public UUID getCustomerId() { return customerId; }
+        public String getStatus() { return status; }
+        public String getCurrency() { return currency; }
+
+        public boolean isOwnedBy(UUID callerId) {
+            return customerId.equals(callerId);
+        }
+
+        public boolean isActive() {
+            return ACTIVE.equalsIgnoreCase(status);
+        }
+    }
+}
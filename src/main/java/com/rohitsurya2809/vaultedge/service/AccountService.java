@@ -1,5 +1,8 @@
 package com.rohitsurya2809.vaultedge.service;
 
+import com.rohitsurya2809.vaultedge.dto.AccountResponse;
+import com.rohitsurya2809.vaultedge.dto.CustomerSummary;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
 import com.rohitsurya2809.vaultedge.exception.NotFoundException;
 import com.rohitsurya2809.vaultedge.model.Account;
 import com.rohitsurya2809.vaultedge.model.Customer;
@@ -10,6 +13,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -17,10 +22,17 @@ public class AccountService {
 
     private final AccountRepository accountRepository;
     private final CustomerRepository customerRepository;
+    private final AccountDirectory accountDirectory;
+    private final BalanceStripes balanceStripes;
 
-    public AccountService(AccountRepository accountRepository, CustomerRepository customerRepository) {
+    private static final Set<String> STATUSES = Set.of("ACTIVE", "FROZEN", "CLOSED");
+
+    public AccountService(AccountRepository accountRepository, CustomerRepository customerRepository,
+                          AccountDirectory accountDirectory, BalanceStripes balanceStripes) {
         this.accountRepository = accountRepository;
         this.customerRepository = customerRepository;
+        this.accountDirectory = accountDirectory;
+        this.balanceStripes = balanceStripes;
     }
 
     @Transactional
@@ -45,8 +57,71 @@ public class AccountService {
                 .orElseThrow(() -> new NotFoundException("Account not found: " + accountId));
     }
 
-    public List<Account> listAccountsByCustomer(UUID customerId) {
-        return accountRepository.findByCustomerId(customerId);
+    /**
+     * Freeze, close or reactivate an account. Only ACTIVE accounts accept postings.
+     */
+    @Transactional
+    public Account changeStatus(UUID accountId, String status) {
+        String s = status == null ? "" : status.trim().toUpperCase();
+        if (!STATUSES.contains(s)) throw new BadRequestException("status must be one of " + STATUSES);
+
+        Account acc = getAccount(accountId);
+        acc.setStatus(s);
+        accountDirectory.invalidate(accountId);
+        return acc;
+    }
+
+    /**
+     * Stripes a hot account's balance over {@code count} sub-balance rows (0 = plain account).
+     */
+    public int changeStripeCount(UUID accountId, int count) {
+        return balanceStripes.setStripeCount(accountId, count);
+    }
+
+    // ---------- Reads (one joined projection query each) ----------
+    // striped accounts add their stripe sums, read in the same transaction so the total is exact
+
+    @Transactional(readOnly = true)
+    public AccountResponse getAccountResponse(UUID accountId) {
+        AccountRepository.AccountView v = accountRepository.findViewById(accountId)
+                .orElseThrow(() -> new NotFoundException("Account not found: " + accountId));
+        return toResponse(v, stripeTotals(List.of(v)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<AccountResponse> listAccountsByCustomer(UUID customerId) {
+        List<AccountRepository.AccountView> views = accountRepository.findViewsByCustomerId(customerId);
+        Map<UUID, BigDecimal> stripes = stripeTotals(views);
+        return views.stream()
+                .map(v -> toResponse(v, stripes))
+                .toList();
+    }
+
+    private Map<UUID, BigDecimal> stripeTotals(List<AccountRepository.AccountView> views) {
+        List<UUID> striped = views.stream()
+                .filter(v -> v.getStripeCount() > 0)
+                .map(AccountRepository.AccountView::getId)
+                .toList();
+        return striped.isEmpty() ? Map.of() : balanceStripes.stripeTotals(striped);
+    }
+
+    private static AccountResponse toResponse(AccountRepository.AccountView v, Map<UUID, BigDecimal> stripes) {
+        return AccountResponse.builder()
+                .id(v.getId())
+                .customer(CustomerSummary.builder()
+                        .id(v.getCustomerId())
+                        .fullName(v.getCustomerFullName())
+                        .email(v.getCustomerEmail())
+                        .build())
+                .accountNumber(v.getAccountNumber())
+                .accountType(v.getAccountType())
+                .currency(v.getCurrency())
+                .balance(v.getBalance().add(stripes.getOrDefault(v.getId(), BigDecimal.ZERO)))
+                .status(v.getStatus())
+                .version(v.getVersion())
+                .createdAt(v.getCreatedAt())
+                .updatedAt(v.getUpdatedAt())
+                .build();
     }
 
     private String generateAccountNumber() {
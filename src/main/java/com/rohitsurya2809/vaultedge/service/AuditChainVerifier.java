@@ -0,0 +1,130 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.service.AuditSegmentStore.Scan;
+import com.rohitsurya2809.vaultedge.service.AuditSegmentStore.SegmentIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Offline check of the audit segment hash chain.
+ *
+ * Re-hashes every record of the segments overlapping [fromSeq, toSeq] and checks that the
+ * sequence numbers are contiguous, that each segment's header continues the previous segment's
+ * chain, and that sealed segments still match their index. The first segment's header is
+ * trusted as the starting point.
+ *
+ *   java -cp <classpath> com.rohitsurya2809.vaultedge.service.AuditChainVerifier <dir> [fromSeq] [toSeq]
+ */
+public final class AuditChainVerifier {
+
+    private AuditChainVerifier() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: AuditChainVerifier <segment-dir> [fromSeq] [toSeq]");
+            System.exit(2);
+        }
+        long from = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        long to = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+        Result r = verify(Paths.get(args[0]), from, to);
+        System.out.println(r);
+        System.exit(r.ok ? 0 : 1);
+    }
+
+    public static Result verify(Path dir, long fromSeq, long toSeq) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, AuditSegmentStore.SEGMENT_PREFIX + "*")) {
+            for (Path p : ds) {
+                String n = p.getFileName().toString();
+                if (n.endsWith(AuditSegmentStore.SEALED_SUFFIX)) files.add(p);
+                // a .seg that already has an index was sealed just before a crash
+                if (n.endsWith(AuditSegmentStore.ACTIVE_SUFFIX) && !Files.exists(dir.resolve(
+                        AuditSegmentStore.name(AuditSegmentStore.firstSeqOf(p), AuditSegmentStore.INDEX_SUFFIX)))) files.add(p);
+            }
+        }
+        files.sort(Comparator.comparingLong(AuditSegmentStore::firstSeqOf));
+
+        Result r = new Result();
+        byte[] prevLastHash = null;
+        long expectedSeq = -1;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long firstSeq = AuditSegmentStore.firstSeqOf(file);
+            long nextFirstSeq = i + 1 < files.size() ? AuditSegmentStore.firstSeqOf(files.get(i + 1)) : Long.MAX_VALUE;
+            if (nextFirstSeq <= fromSeq) continue; // entirely before the range
+            if (firstSeq > toSeq) break;
+
+            boolean sealed = file.getFileName().toString().endsWith(AuditSegmentStore.SEALED_SUFFIX);
+            SegmentIndex idx = null;
+            byte[] raw;
+            if (sealed) {
+                Path idxPath = dir.resolve(AuditSegmentStore.name(firstSeq, AuditSegmentStore.INDEX_SUFFIX));
+                if (!Files.exists(idxPath)) return r.fail(file, "missing index " + idxPath.getFileName());
+                idx = SegmentIndex.read(idxPath);
+                raw = AuditSegmentStore.readSealed(file, -1);
+            } else {
+                raw = Files.readAllBytes(file);
+            }
+
+            ByteBuffer b = ByteBuffer.wrap(raw);
+            if (raw.length < AuditSegmentStore.HEADER_SIZE || b.getInt(0) != AuditSegmentStore.SEGMENT_MAGIC) {
+                return r.fail(file, "bad segment header");
+            }
+            if (b.getLong(8) != firstSeq) return r.fail(file, "header firstSeq " + b.getLong(8) + " does not match file name");
+            byte[] prevHash = new byte[AuditSegmentStore.HASH_SIZE];
+            b.get(16, prevHash);
+            if (expectedSeq >= 0 && firstSeq != expectedSeq) {
+                return r.fail(file, "segment starts at seq " + firstSeq + ", expected " + expectedSeq);
+            }
+            if (prevLastHash != null && !MessageDigest.isEqual(prevHash, prevLastHash)) {
+                return r.fail(file, "header does not continue the previous segment's chain");
+            }
+
+            Scan s = AuditSegmentStore.scan(b, firstSeq, prevHash, null);
+            if (s.problem != null) return r.fail(file, s.problem);
+            if (idx != null) {
+                if (s.end != raw.length || s.nextSeq - 1 != idx.lastSeq || !MessageDigest.isEqual(s.lastHash, idx.lastHash)) {
+                    return r.fail(file, "contents do not match the segment index");
+                }
+            }
+
+            r.segments++;
+            r.records += s.count;
+            if (r.firstSeq < 0) r.firstSeq = firstSeq;
+            r.lastSeq = s.nextSeq - 1;
+            prevLastHash = s.lastHash;
+            expectedSeq = s.nextSeq;
+        }
+        r.ok = true;
+        return r;
+    }
+
+    public static final class Result {
+        public boolean ok;
+        public int segments;
+        public long records;
+        public long firstSeq = -1;
+        public long lastSeq = -1;
+        public String problem;
+
+        Result fail(Path file, String problem) {
+            this.ok = false;
+            this.problem = file.getFileName() + ": " + problem;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return ok
+                    ? "OK: " + records + " records in " + segments + " segments, seq " + firstSeq + ".." + lastSeq
+                    : "FAILED after " + records + " records in " + segments + " segments: " + problem;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.dto.AuditLogResponse;
+import com.rohitsurya2809.vaultedge.dto.AuditLogSliceResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.model.AuditLog;
+import com.rohitsurya2809.vaultedge.repository.AuditLogRepository;
+import com.rohitsurya2809.vaultedge.repository.AuditLogSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Admin search over the audit trail, newest first.
+ *
+ * Against audit_logs every filter combination is served by one of the (user_id | entity_id |
+ * action, created_at) indexes, slices use keyset paging on (created_at, id) and the export
+ * scrolls a constructor projection with a bounded fetch size, like {@link TransactionExportService}.
+ * With audit.store=segments the same queries are answered by {@link AuditSegmentStore#query}
+ * and the cursor is the record sequence number instead.
+ */
+@Service
+public class AuditQueryService {
+
+    private static final int MAX_SLICE_SIZE = 500;
+    private static final String SEQ_CURSOR_PREFIX = "seq:";
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditService auditService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+
+    public AuditQueryService(AuditLogRepository auditLogRepository,
+                             AuditService auditService,
+                             EntityManager entityManager,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${export.fetch-size:500}") int fetchSize) {
+        this.auditLogRepository = auditLogRepository;
+        this.auditService = auditService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    @Transactional(readOnly = true)
+    public AuditLogSliceResponse search(UUID userId, UUID entityId, String action, String fromIso, String toIso,
+                                        String cursor, int size) {
+        int limit = Math.min(Math.max(1, size), MAX_SLICE_SIZE);
+        OffsetDateTime from = parseDate(fromIso);
+        OffsetDateTime to = parseDate(toIso);
+        if (!auditService.storesInDatabase()) {
+            return searchSegments(userId, entityId, action, from, to, cursor, limit);
+        }
+
+        Specification<AuditLog> spec = AuditLogSpecification.build(userId, entityId, action, from, to);
+        if (cursor != null && !cursor.isBlank()) {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            spec = spec.and(AuditLogSpecification.before(after.getCreatedAt(), after.getId()));
+        }
+
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+        List<AuditLog> rows = auditLogRepository.findBy(spec, q -> q.sortBy(newestFirst).limit(limit + 1).all());
+
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) rows = rows.subList(0, limit);
+        String next = null;
+        if (hasNext) {
+            AuditLog last = rows.get(rows.size() - 1);
+            next = new TransactionCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return AuditLogSliceResponse.builder()
+                .content(rows.stream().map(AuditQueryService::toResponse).toList())
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(next)
+                .build();
+    }
+
+    /**
+     * Streams every matching event as NDJSON, newest first, without holding the result in memory.
+     */
+    public void export(UUID userId, UUID entityId, String action, String fromIso, String toIso, OutputStream out) {
+        OffsetDateTime from = parseDate(fromIso);
+        OffsetDateTime to = parseDate(toIso);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (!auditService.storesInDatabase()) {
+            exportSegments(userId, entityId, action, from, to, writer);
+            return;
+        }
+
+        readOnlyTx.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            CriteriaBuilder cb = session.getCriteriaBuilder();
+            CriteriaQuery<AuditLogResponse> cq = cb.createQuery(AuditLogResponse.class);
+            Root<AuditLog> root = cq.from(AuditLog.class);
+            cq.select(cb.construct(AuditLogResponse.class, root.get("id"), root.get("action"), root.get("userId"),
+                    root.get("entityId"), root.get("ipAddress"), root.get("details"), root.get("createdAt")));
+            Predicate where = AuditLogSpecification.build(userId, entityId, action, from, to).toPredicate(root, cq, cb);
+            if (where != null) cq.where(where);
+            cq.orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("id")));
+
+            try (ScrollableResults<AuditLogResponse> rows = session.createQuery(cq)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    writer.write(objectMapper.writeValueAsString(rows.get()));
+                    writer.write('\n');
+                }
+                writer.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    // ---------- Segment store ----------
+
+    private AuditLogSliceResponse searchSegments(UUID userId, UUID entityId, String action, OffsetDateTime from,
+                                                 OffsetDateTime to, String cursor, int limit) {
+        Long before = cursor != null && !cursor.isBlank() ? decodeSeq(cursor) : null;
+        List<AuditSegmentStore.Record> rows = querySegments(userId, entityId, action, from, to, before, limit + 1);
+
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) rows = rows.subList(0, limit);
+        String next = hasNext ? encodeSeq(rows.get(rows.size() - 1).seq) : null;
+
+        return AuditLogSliceResponse.builder()
+                .content(rows.stream().map(r -> toResponse(r.entry)).toList())
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(next)
+                .build();
+    }
+
+    private void exportSegments(UUID userId, UUID entityId, String action, OffsetDateTime from, OffsetDateTime to,
+                                Writer writer) {
+        try {
+            // one pass over the segments instead of a query per page
+            AuditSegmentStore.Cursor cursor = auditService.segmentStore().cursor(userId, entityId, normalizeAction(action),
+                    from != null ? from.toInstant() : null,
+                    to != null ? to.toInstant().plusNanos(1) : null);
+            List<AuditSegmentStore.Record> rows;
+            while (!(rows = cursor.next(fetchSize)).isEmpty()) {
+                for (AuditSegmentStore.Record r : rows) {
+                    writer.write(objectMapper.writeValueAsString(toResponse(r.entry)));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<AuditSegmentStore.Record> querySegments(UUID userId, UUID entityId, String action, OffsetDateTime from,
+                                                         OffsetDateTime to, Long before, int limit) {
+        try {
+            // the store's upper bound is exclusive, the API's is inclusive
+            return auditService.segmentStore().query(userId, entityId, normalizeAction(action),
+                    from != null ? from.toInstant() : null,
+                    to != null ? to.toInstant().plusNanos(1) : null,
+                    before, limit);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String normalizeAction(String action) {
+        return action == null || action.isBlank() ? null : action.trim().toUpperCase();
+    }
+
+    private static String encodeSeq(long seq) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((SEQ_CURSOR_PREFIX + seq).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeSeq(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!raw.startsWith(SEQ_CURSOR_PREFIX)) throw new IllegalArgumentException("not a sequence cursor");
+            return Long.parseLong(raw.substring(SEQ_CURSOR_PREFIX.length()));
+        } catch (RuntimeException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    // ---------- Helpers ----------
+
+    private static OffsetDateTime parseDate(String iso) {
+        if (iso == null || iso.isBlank()) return null;
+        try {
+            return OffsetDateTime.parse(iso);
+        } catch (DateTimeParseException ex) {
+            throw new BadRequestException("Invalid timestamp: " + iso);
+        }
+    }
+
+    private static AuditLogResponse toResponse(AuditLog e) {
+        return AuditLogResponse.builder()
+                .id(e.getId())
+                .action(e.getAction())
+                .userId(e.getUserId())
+                .entityId(e.getEntityId())
+                .ipAddress(e.getIpAddress())
+                .details(e.getDetails())
+                .createdAt(e.getCreatedAt())
+                .build();
+    }
+}
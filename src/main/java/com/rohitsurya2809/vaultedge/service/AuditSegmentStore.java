@@ -0,0 +1,697 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.model.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only audit store on rolling memory-mapped segment files (audit.store=segments).
+ *
+ * Layout of the segment directory:
+ *   audit-<firstSeq>.seg      active segment, pre-sized and memory-mapped, zero length marks the end
+ *   audit-<firstSeq>.seg.gz   sealed segment (the used bytes of a rolled .seg, gzipped)
+ *   audit-<firstSeq>.idx      index of a sealed segment: seq and time bounds, record offsets per userId
+ *
+ * A segment starts with a 64 byte header [magic][version][firstSeq][prevHash]. Records are
+ *   [len:int][seq:long][epochSecond:long][nano:int][id:16][flags:byte][userId:16][entityId:16]
+ *   [actionLen:short][action][ipLen:short][ip][detailsLen:int][details][hash:32]
+ * where hash = SHA-256(hash of the previous record || every byte of this record before the hash).
+ * The chain runs across segments through the header's prevHash, so editing, dropping or
+ * reordering any record breaks every hash after it; {@link AuditChainVerifier} checks it.
+ *
+ * Records are encoded straight into the mapped buffer and hashed from it, so an append is a
+ * sequential write into the page cache with no intermediate copies and no database involved.
+ */
+public class AuditSegmentStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditSegmentStore.class);
+
+    static final int SEGMENT_MAGIC = 0x56454153; // "VEAS"
+    static final int INDEX_MAGIC = 0x56454149; // "VEAI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int HASH_SIZE = 32;
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String ACTIVE_SUFFIX = ".seg";
+    static final String SEALED_SUFFIX = ".seg.gz";
+    static final String INDEX_SUFFIX = ".idx";
+
+    // fixed part of a record, up to and including actionLen
+    private static final int FIXED_SIZE = 75;
+    private static final byte HAS_USER = 1;
+    private static final byte HAS_ENTITY = 2;
+    private static final byte HAS_IP = 4;
+    private static final byte HAS_DETAILS = 8;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final MessageDigest digest = sha256();
+    // guards the active segment, the chain state and the sealed list. A ReentrantLock rather than
+    // synchronized: appends force and seal segments on request threads, and a virtual thread
+    // blocking on I/O inside a monitor pins its carrier (Java 21)
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final List<SegmentIndex> sealed = new ArrayList<>(); // oldest first
+    private Active active;
+    private long nextSeq = 1;
+    private byte[] lastHash = new byte[HASH_SIZE];
+
+    public AuditSegmentStore(Path dir, int segmentSize, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.segmentSize = Math.max(1 << 20, segmentSize);
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        recover();
+    }
+
+    // ---------- Writing ----------
+
+    /**
+     * Appends the events in order; returns the sequence number of the last one.
+     */
+    public long append(List<AuditLog> events) throws IOException {
+        lock.lock();
+        try {
+            for (AuditLog e : events) appendOne(e);
+            if (fsync && !events.isEmpty()) active.buf.force();
+            return nextSeq - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void appendOne(AuditLog e) throws IOException {
+        byte[] action = e.getAction().getBytes(StandardCharsets.UTF_8);
+        byte[] ip = e.getIpAddress() == null ? null : e.getIpAddress().getBytes(StandardCharsets.UTF_8);
+        byte[] details = e.getDetails() == null ? null : e.getDetails().getBytes(StandardCharsets.UTF_8);
+        int len = FIXED_SIZE + action.length + 2 + (ip == null ? 0 : ip.length)
+                + 4 + (details == null ? 0 : details.length) + HASH_SIZE;
+        if (len > segmentSize - HEADER_SIZE) {
+            throw new IOException("Audit record of " + len + " bytes does not fit a segment of " + segmentSize + " bytes");
+        }
+        if (active.position + len > active.buf.capacity()) roll();
+
+        MappedByteBuffer b = active.buf;
+        int p = active.position;
+        Instant at = e.getCreatedAt().toInstant();
+        byte flags = (byte) ((e.getUserId() != null ? HAS_USER : 0) | (e.getEntityId() != null ? HAS_ENTITY : 0)
+                | (ip != null ? HAS_IP : 0) | (details != null ? HAS_DETAILS : 0));
+
+        b.position(p);
+        b.putInt(len);
+        b.putLong(nextSeq);
+        b.putLong(at.getEpochSecond());
+        b.putInt(at.getNano());
+        putUuid(b, e.getId());
+        b.put(flags);
+        putUuid(b, e.getUserId());
+        putUuid(b, e.getEntityId());
+        b.putShort((short) action.length).put(action);
+        b.putShort((short) (ip == null ? 0 : ip.length));
+        if (ip != null) b.put(ip);
+        b.putInt(details == null ? 0 : details.length);
+        if (details != null) b.put(details);
+
+        byte[] hash = chain(digest, lastHash, b, p, len);
+        b.put(hash);
+
+        active.position = p + len;
+        lastHash = hash;
+        nextSeq++;
+    }
+
+    private void roll() throws IOException {
+        seal(active);
+        active = create(nextSeq, lastHash);
+    }
+
+    /**
+     * Writes the used bytes of the segment as .seg.gz plus its .idx, then drops the .seg.
+     * Both files are moved into place before the .seg is deleted, so a crash in between
+     * leaves a .seg that recovery recognises as already sealed.
+     */
+    private void seal(Active a) throws IOException {
+        if (a.position == HEADER_SIZE) {
+            Files.deleteIfExists(a.path);
+            return;
+        }
+        a.buf.force();
+        ByteBuffer raw = a.buf.duplicate().position(0).limit(a.position);
+        SegmentIndex idx = SegmentIndex.build(raw.duplicate(), a.firstSeq);
+
+        Path gz = dir.resolve(name(a.firstSeq, SEALED_SUFFIX));
+        Path tmp = dir.resolve(name(a.firstSeq, SEALED_SUFFIX + ".tmp"));
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             GZIPOutputStream out = new GZIPOutputStream(fos, 1 << 16)) {
+            WritableByteChannel ch = Channels.newChannel(out);
+            while (raw.hasRemaining()) ch.write(raw);
+            out.finish();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, gz, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        idx.write(dir.resolve(name(a.firstSeq, INDEX_SUFFIX)));
+        Files.deleteIfExists(a.path);
+        sealed.add(idx);
+        log.info("Sealed audit segment {} (seq {}..{}, {} records)", gz.getFileName(), idx.firstSeq, idx.lastSeq, idx.count);
+    }
+
+    private Active create(long firstSeq, byte[] prevHash) throws IOException {
+        Path path = dir.resolve(name(firstSeq, ACTIVE_SUFFIX));
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buf.putInt(0, SEGMENT_MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putLong(8, firstSeq);
+        buf.put(16, prevHash);
+        buf.force();
+        return new Active(path, firstSeq, prevHash, buf, HEADER_SIZE);
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (active != null) active.buf.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------- Recovery ----------
+
+    private void recover() throws IOException {
+        for (Path p : list(INDEX_SUFFIX)) sealed.add(SegmentIndex.read(p));
+        sealed.sort(Comparator.comparingLong(i -> i.firstSeq));
+        if (!sealed.isEmpty()) {
+            SegmentIndex last = sealed.get(sealed.size() - 1);
+            nextSeq = last.lastSeq + 1;
+            lastHash = last.lastHash;
+        }
+
+        List<Path> open = list(ACTIVE_SUFFIX);
+        for (int i = 0; i < open.size(); i++) {
+            Path path = open.get(i);
+            long firstSeq = firstSeqOf(path);
+            if (Files.exists(dir.resolve(name(firstSeq, INDEX_SUFFIX)))) {
+                Files.delete(path); // sealed just before a crash
+                continue;
+            }
+            Active a = map(path);
+            if (a.firstSeq != nextSeq || !Arrays.equals(a.prevHash, lastHash)) {
+                log.warn("Audit segment {} does not continue the chain (expected seq {}), run the verifier", path.getFileName(), nextSeq);
+            }
+            Scan scan = scan(a.buf.duplicate().limit(a.buf.capacity()), a.firstSeq, a.prevHash, null);
+            if (scan.problem != null) {
+                log.warn("Audit segment {}: {}, appending after seq {}", path.getFileName(), scan.problem, scan.nextSeq - 1);
+            }
+            a.position = scan.end;
+            nextSeq = scan.nextSeq;
+            lastHash = scan.lastHash;
+            if (i < open.size() - 1) seal(a);
+            else active = a;
+        }
+        if (active == null) active = create(nextSeq, lastHash);
+        log.info("Audit segment store at {}: {} sealed segments, next seq {}", dir.toAbsolutePath(), sealed.size(), nextSeq);
+    }
+
+    private static Active map(Path path) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+        }
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != SEGMENT_MAGIC) throw new IOException("Corrupt audit segment: " + path);
+        byte[] prev = new byte[HASH_SIZE];
+        buf.get(16, prev);
+        return new Active(path, buf.getLong(8), prev, buf, HEADER_SIZE);
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + suffix)) {
+            for (Path p : ds) out.add(p);
+        }
+        out.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        return out;
+    }
+
+    static String name(long firstSeq, String suffix) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, suffix);
+    }
+
+    static long firstSeqOf(Path path) {
+        String n = path.getFileName().toString();
+        return Long.parseLong(n.substring(SEGMENT_PREFIX.length(), SEGMENT_PREFIX.length() + 20));
+    }
+
+    // ---------- Reading ----------
+
+    /**
+     * Newest-first search served from the segments. Sealed segments are skipped using their
+     * index (time bounds, userId offsets); null filters match everything.
+     */
+    public List<Record> query(UUID userId, UUID entityId, String action, Instant from, Instant to,
+                              Long beforeSeq, int limit) throws IOException {
+        List<SegmentIndex> segments;
+        ByteBuffer activeBuf;
+        long activeFirstSeq;
+        lock.lock();
+        try {
+            segments = new ArrayList<>(sealed);
+            // bytes below position are never rewritten, and the mapping outlives a roll
+            activeBuf = active.buf.duplicate().position(0).limit(active.position);
+            activeFirstSeq = active.firstSeq;
+        } finally {
+            lock.unlock();
+        }
+        long before = beforeSeq != null ? beforeSeq : Long.MAX_VALUE;
+        long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+        long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+
+        List<Record> out = new ArrayList<>();
+        if (activeFirstSeq < before) {
+            collect(activeBuf, null, userId, entityId, action, from, to, before, limit, out);
+        }
+        for (int i = segments.size() - 1; i >= 0 && out.size() < limit; i--) {
+            SegmentIndex idx = segments.get(i);
+            if (idx.firstSeq >= before || idx.maxMillis < fromMillis || idx.minMillis >= toMillis) continue;
+            int[] offsets = null;
+            if (userId != null) {
+                offsets = idx.users.get(userId);
+                if (offsets == null) continue;
+            }
+            ByteBuffer raw = ByteBuffer.wrap(readSealed(dir.resolve(name(idx.firstSeq, SEALED_SUFFIX)), idx.rawLength));
+            collect(raw, offsets, userId, entityId, action, from, to, before, limit, out);
+        }
+        return out;
+    }
+
+    private static void collect(ByteBuffer raw, int[] offsets, UUID userId, UUID entityId, String action,
+                                Instant from, Instant to, long before, int limit, List<Record> out) {
+        if (offsets == null) offsets = offsets(raw);
+        for (int i = offsets.length - 1; i >= 0 && out.size() < limit; i--) {
+            Record r = match(raw, offsets[i], userId, entityId, action, from, to, before);
+            if (r != null) out.add(r);
+        }
+    }
+
+    // positions of every record in a segment, ascending
+    private static int[] offsets(ByteBuffer raw) {
+        int[] out = new int[64];
+        int n = 0;
+        for (int p = HEADER_SIZE, len; p + 4 <= raw.limit() && (len = raw.getInt(p)) > 0 && p + len <= raw.limit(); p += len) {
+            if (n == out.length) out = Arrays.copyOf(out, n * 2);
+            out[n++] = p;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static Record match(ByteBuffer raw, int p, UUID userId, UUID entityId, String action,
+                                Instant from, Instant to, long before) {
+        if (raw.getLong(p + 4) >= before) return null;
+        Record r = decode(raw, p);
+        AuditLog e = r.entry;
+        Instant at = e.getCreatedAt().toInstant();
+        if (userId != null && !userId.equals(e.getUserId())) return null;
+        if (entityId != null && !entityId.equals(e.getEntityId())) return null;
+        if (action != null && !action.equals(e.getAction())) return null;
+        if (from != null && at.isBefore(from)) return null;
+        if (to != null && !at.isBefore(to)) return null;
+        return r;
+    }
+
+    /**
+     * Newest-first iteration over every match of a search, for exports. Unlike paging through
+     * {@link #query} with beforeSeq, which re-reads every newer segment per page, the cursor
+     * keeps its (segment, offset) position and reads each segment once.
+     */
+    public Cursor cursor(UUID userId, UUID entityId, String action, Instant from, Instant to) {
+        lock.lock();
+        try {
+            return new Cursor(new ArrayList<>(sealed), active.buf.duplicate().position(0).limit(active.position),
+                    userId, entityId, action, from, to);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ids among {@code ids} that are already in the store. Only segments holding records
+     * created at or after {@code since} are read, since a record is never appended before it
+     * was created.
+     */
+    public Set<UUID> existingIds(Set<UUID> ids, Instant since) throws IOException {
+        List<SegmentIndex> segments;
+        ByteBuffer activeBuf;
+        lock.lock();
+        try {
+            segments = new ArrayList<>(sealed);
+            activeBuf = active.buf.duplicate().position(0).limit(active.position);
+        } finally {
+            lock.unlock();
+        }
+        long sinceMillis = since.toEpochMilli();
+        Set<UUID> found = new HashSet<>();
+        collectIds(activeBuf, ids, found);
+        for (int i = segments.size() - 1; i >= 0 && found.size() < ids.size(); i--) {
+            SegmentIndex idx = segments.get(i);
+            if (idx.maxMillis < sinceMillis) continue;
+            collectIds(ByteBuffer.wrap(readSealed(dir.resolve(name(idx.firstSeq, SEALED_SUFFIX)), idx.rawLength)), ids, found);
+        }
+        return found;
+    }
+
+    private static void collectIds(ByteBuffer raw, Set<UUID> ids, Set<UUID> found) {
+        for (int p : offsets(raw)) {
+            UUID id = new UUID(raw.getLong(p + 24), raw.getLong(p + 32));
+            if (ids.contains(id)) found.add(id);
+        }
+    }
+
+    static byte[] readSealed(Path gz, long rawLength) throws IOException {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(gz)), 1 << 16)) {
+            if (rawLength >= 0) {
+                byte[] raw = new byte[Math.toIntExact(rawLength)];
+                int n = in.readNBytes(raw, 0, raw.length);
+                return n == raw.length ? raw : Arrays.copyOf(raw, n);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    // ---------- Encoding ----------
+
+    static Record decode(ByteBuffer b, int p) {
+        ByteBuffer r = b.duplicate().position(p + 4);
+        long seq = r.getLong();
+        Instant at = Instant.ofEpochSecond(r.getLong(), r.getInt());
+        UUID id = getUuid(r);
+        byte flags = r.get();
+        UUID userId = getUuid(r);
+        UUID entityId = getUuid(r);
+        String action = getString(r, r.getShort() & 0xFFFF);
+        int ipLen = r.getShort() & 0xFFFF;
+        String ip = (flags & HAS_IP) != 0 ? getString(r, ipLen) : null;
+        int detailsLen = r.getInt();
+        String details = (flags & HAS_DETAILS) != 0 ? getString(r, detailsLen) : null;
+
+        AuditLog e = AuditLog.builder()
+                .id(id)
+                .action(action)
+                .userId((flags & HAS_USER) != 0 ? userId : null)
+                .entityId((flags & HAS_ENTITY) != 0 ? entityId : null)
+                .ipAddress(ip)
+                .details(details)
+                .createdAt(OffsetDateTime.ofInstant(at, ZoneOffset.UTC))
+                .build();
+        return new Record(seq, e);
+    }
+
+    /**
+     * Walks the records after the header while lengths, sequence numbers and the hash chain
+     * hold. {@code visitor} (optional) sees each valid record's position.
+     */
+    static Scan scan(ByteBuffer b, long firstSeq, byte[] prevHash, RecordVisitor visitor) {
+        MessageDigest md = sha256();
+        Scan s = new Scan(HEADER_SIZE, firstSeq, prevHash);
+        int p = HEADER_SIZE;
+        while (p + FIXED_SIZE + HASH_SIZE <= b.limit()) {
+            int len = b.getInt(p);
+            if (len < FIXED_SIZE + 6 + HASH_SIZE || p + len > b.limit()) break;
+            if (b.getLong(p + 4) != s.nextSeq) {
+                s.problem = "sequence gap at offset " + p + ": expected " + s.nextSeq + ", found " + b.getLong(p + 4);
+                break;
+            }
+            byte[] hash = chain(md, s.lastHash, b, p, len);
+            byte[] stored = new byte[HASH_SIZE];
+            b.get(p + len - HASH_SIZE, stored);
+            if (!MessageDigest.isEqual(hash, stored)) {
+                s.problem = "hash mismatch at seq " + s.nextSeq;
+                break;
+            }
+            if (visitor != null) visitor.visit(p, s.nextSeq);
+            s.lastHash = hash;
+            s.nextSeq++;
+            s.count++;
+            p += len;
+            s.end = p;
+        }
+        if (s.problem == null && s.end + 4 <= b.limit() && b.getInt(s.end) != 0) {
+            s.problem = "unreadable record at offset " + s.end;
+        }
+        return s;
+    }
+
+    static byte[] chain(MessageDigest md, byte[] prevHash, ByteBuffer b, int p, int len) {
+        md.reset();
+        md.update(prevHash);
+        md.update(b.slice(p, len - HASH_SIZE));
+        return md.digest();
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putUuid(ByteBuffer b, UUID id) {
+        b.putLong(id != null ? id.getMostSignificantBits() : 0L);
+        b.putLong(id != null ? id.getLeastSignificantBits() : 0L);
+    }
+
+    private static UUID getUuid(ByteBuffer b) {
+        return new UUID(b.getLong(), b.getLong());
+    }
+
+    private static String getString(ByteBuffer b, int len) {
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---------- Types ----------
+
+    public static final class Record {
+        public final long seq;
+        public final AuditLog entry;
+
+        Record(long seq, AuditLog entry) {
+            this.seq = seq;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Position of a {@link #cursor} search: a segment (sealed ones by index, oldest first, then
+     * the active one) and an offset into its records, both walked downwards.
+     */
+    public final class Cursor {
+        private final List<SegmentIndex> segments;
+        private final UUID userId;
+        private final UUID entityId;
+        private final String action;
+        private final Instant from;
+        private final Instant to;
+        private final long fromMillis;
+        private final long toMillis;
+
+        private int segment;
+        private ByteBuffer raw;
+        private int[] offsets;
+        private int position;
+
+        private Cursor(List<SegmentIndex> segments, ByteBuffer activeBuf, UUID userId, UUID entityId, String action,
+                       Instant from, Instant to) {
+            this.segments = segments;
+            this.userId = userId;
+            this.entityId = entityId;
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+            this.toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+            this.segment = segments.size();
+            this.raw = activeBuf;
+            this.offsets = offsets(activeBuf);
+            this.position = offsets.length - 1;
+        }
+
+        /**
+         * Up to {@code max} further matches, newest first; empty once the search is exhausted.
+         */
+        public List<Record> next(int max) throws IOException {
+            List<Record> out = new ArrayList<>(Math.min(max, 1024));
+            while (out.size() < max) {
+                if (position < 0 && !advance()) break;
+                Record r = match(raw, offsets[position--], userId, entityId, action, from, to, Long.MAX_VALUE);
+                if (r != null) out.add(r);
+            }
+            return out;
+        }
+
+        // moves to the next older sealed segment that can hold a match
+        private boolean advance() throws IOException {
+            while (--segment >= 0) {
+                SegmentIndex idx = segments.get(segment);
+                if (idx.maxMillis < fromMillis || idx.minMillis >= toMillis) continue;
+                int[] candidates = null;
+                if (userId != null) {
+                    candidates = idx.users.get(userId);
+                    if (candidates == null) continue;
+                }
+                raw = ByteBuffer.wrap(readSealed(dir.resolve(name(idx.firstSeq, SEALED_SUFFIX)), idx.rawLength));
+                offsets = candidates != null ? candidates : offsets(raw);
+                position = offsets.length - 1;
+                if (position >= 0) return true;
+            }
+            raw = null;
+            return false;
+        }
+    }
+
+    interface RecordVisitor {
+        void visit(int position, long seq);
+    }
+
+    static final class Scan {
+        int end;
+        long nextSeq;
+        byte[] lastHash;
+        long count;
+        String problem;
+
+        Scan(int end, long nextSeq, byte[] lastHash) {
+            this.end = end;
+            this.nextSeq = nextSeq;
+            this.lastHash = lastHash;
+        }
+    }
+
+    private static final class Active {
+        final Path path;
+        final long firstSeq;
+        final byte[] prevHash;
+        final MappedByteBuffer buf;
+        int position;
+
+        Active(Path path, long firstSeq, byte[] prevHash, MappedByteBuffer buf, int position) {
+            this.path = path;
+            this.firstSeq = firstSeq;
+            this.prevHash = prevHash;
+            this.buf = buf;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Index of a sealed segment. Offsets are positions in the uncompressed segment.
+     */
+    static final class SegmentIndex {
+        long firstSeq;
+        long lastSeq;
+        long count;
+        long minMillis = Long.MAX_VALUE;
+        long maxMillis = Long.MIN_VALUE;
+        long rawLength;
+        byte[] prevHash;
+        byte[] lastHash;
+        Map<UUID, int[]> users = new HashMap<>();
+
+        static SegmentIndex build(ByteBuffer raw, long firstSeq) {
+            byte[] prev = new byte[HASH_SIZE];
+            raw.get(16, prev);
+            SegmentIndex idx = new SegmentIndex();
+            idx.firstSeq = firstSeq;
+            idx.prevHash = prev;
+
+            Map<UUID, List<Integer>> users = new HashMap<>();
+            Scan s = scan(raw, firstSeq, prev, (p, seq) -> {
+                long millis = Instant.ofEpochSecond(raw.getLong(p + 12), raw.getInt(p + 20)).toEpochMilli();
+                idx.minMillis = Math.min(idx.minMillis, millis);
+                idx.maxMillis = Math.max(idx.maxMillis, millis);
+                if ((raw.get(p + 40) & HAS_USER) != 0) {
+                    UUID user = new UUID(raw.getLong(p + 41), raw.getLong(p + 49));
+                    users.computeIfAbsent(user, k -> new ArrayList<>()).add(p);
+                }
+            });
+            idx.lastSeq = s.nextSeq - 1;
+            idx.count = s.count;
+            idx.lastHash = s.lastHash;
+            idx.rawLength = s.end;
+            users.forEach((u, list) -> idx.users.put(u, list.stream().mapToInt(Integer::intValue).toArray()));
+            return idx;
+        }
+
+        void write(Path path) throws IOException {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeLong(firstSeq);
+                out.writeLong(lastSeq);
+                out.writeLong(count);
+                out.writeLong(minMillis);
+                out.writeLong(maxMillis);
+                out.writeLong(rawLength);
+                out.write(prevHash);
+                out.write(lastHash);
+                out.writeInt(users.size());
+                for (Map.Entry<UUID, int[]> u : users.entrySet()) {
+                    out.writeLong(u.getKey().getMostSignificantBits());
+                    out.writeLong(u.getKey().getLeastSignificantBits());
+                    out.writeInt(u.getValue().length);
+                    for (int off : u.getValue()) out.writeInt(off);
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        static SegmentIndex read(Path path) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != INDEX_MAGIC) throw new IOException("Corrupt audit segment index: " + path);
+                SegmentIndex idx = new SegmentIndex();
+                idx.firstSeq = in.readLong();
+                idx.lastSeq = in.readLong();
+                idx.count = in.readLong();
+                idx.minMillis = in.readLong();
+                idx.maxMillis = in.readLong();
+                idx.rawLength = in.readLong();
+                idx.prevHash = in.readNBytes(HASH_SIZE);
+                idx.lastHash = in.readNBytes(HASH_SIZE);
+                int users = in.readInt();
+                for (int i = 0; i < users; i++) {
+                    UUID u = new UUID(in.readLong(), in.readLong());
+                    int[] offsets = new int[in.readInt()];
+                    for (int j = 0; j < offsets.length; j++) offsets[j] = in.readInt();
+                    idx.users.put(u, offsets);
+                }
+                return idx;
+            }
+        }
+    }
+}
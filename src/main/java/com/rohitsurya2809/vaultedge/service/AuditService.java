@@ -1,23 +1,162 @@
 package com.rohitsurya2809.vaultedge.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
 import com.rohitsurya2809.vaultedge.model.AuditLog;
 import com.rohitsurya2809.vaultedge.repository.AuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Audit trail.
+ *
+ * With audit.async.enabled (the default) {@link #log} only builds the event and publishes it to
+ * a bounded lock-free ring buffer; a single writer thread serializes the details and writes the
+ * events with batched INSERTs. Events logged inside a transaction are published after it
+ * commits. When the buffer is full or the database rejects a batch, events go to an
+ * {@link AuditSpillFile} and are replayed once the database accepts writes again. The buffer
+ * is drained on shutdown.
+ *
+ * audit.store picks where events end up: the audit_logs table (database, the default) or an
+ * {@link AuditSegmentStore} of hash-chained, memory-mapped segment files (segments).
+ */
 @Service
 public class AuditService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuditService.class);
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    // INSERT IGNORE: a replayed spill file may overlap rows that were already written
+    private static final String INSERT_SQL = "INSERT IGNORE INTO audit_logs (id, action, user_id, entity_id, ip_address, details, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
     private final AuditLogRepository auditLogRepository;
     private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbc;
+
+    private final boolean async;
+    private final int batchSize;
+    private final long idleNanos;
+    private final long retryMillis;
+    private final Path spillDir;
+    private final boolean useSegments;
+    private final Path segmentDir;
+    private final int segmentSize;
+    private final boolean segmentFsync;
+
+    private final BoundedRingBuffer<Event> ring;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter replayed;
+    private final Timer flushTimer;
+
+    private AuditSpillFile spill;
+    private AuditSegmentStore segments;
+    private volatile boolean running;
+    private Thread worker;
+    private long dbRetryAt;
 
-    public AuditService(AuditLogRepository auditLogRepository, ObjectMapper objectMapper) {
+    public AuditService(AuditLogRepository auditLogRepository,
+                        ObjectMapper objectMapper,
+                        JdbcTemplate jdbc,
+                        MeterRegistry meterRegistry,
+                        @Value("${audit.async.enabled:true}") boolean async,
+                        @Value("${audit.async.buffer-size:8192}") int bufferSize,
+                        @Value("${audit.async.batch-size:500}") int batchSize,
+                        @Value("${audit.async.idle-ms:20}") long idleMillis,
+                        @Value("${audit.async.retry-seconds:30}") long retrySeconds,
+                        @Value("${audit.async.spill-dir:./data/audit}") String spillDir,
+                        @Value("${audit.store:database}") String store,
+                        @Value("${audit.segments.dir:./data/audit-segments}") String segmentDir,
+                        @Value("${audit.segments.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${audit.segments.fsync:true}") boolean segmentFsync) {
         this.auditLogRepository = auditLogRepository;
         this.objectMapper = objectMapper;
+        this.jdbc = jdbc;
+        this.async = async;
+        this.batchSize = Math.max(1, batchSize);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleMillis));
+        this.retryMillis = TimeUnit.SECONDS.toMillis(Math.max(1, retrySeconds));
+        this.spillDir = Paths.get(spillDir);
+        this.ring = new BoundedRingBuffer<>(bufferSize);
+        this.useSegments = "segments".equalsIgnoreCase(store.trim());
+        this.segmentDir = Paths.get(segmentDir);
+        this.segmentSize = Math.max(1, segmentSizeMb) << 20;
+        this.segmentFsync = segmentFsync;
+
+        this.dropped = Counter.builder("audit.events.dropped")
+                .description("Audit events lost because neither the database nor the spill file took them")
+                .register(meterRegistry);
+        this.spilled = Counter.builder("audit.events.spilled")
+                .description("Audit events written to the local spill file")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("audit.events.replayed")
+                .description("Spilled audit events written to the database")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.flush.duration")
+                .description("Time to insert one batch of audit events")
+                .register(meterRegistry);
+        meterRegistry.gauge("audit.queue_depth", ring, BoundedRingBuffer::size);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (useSegments) segments = new AuditSegmentStore(segmentDir, segmentSize, segmentFsync);
+        if (!async) return;
+        spill = new AuditSpillFile(spillDir);
+        running = true;
+        worker = new Thread(this::run, "audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Async audit writer started (buffer {}, batch {}, spill dir {})",
+                ring.capacity(), batchSize, spillDir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        if (spill != null) spill.close();
+        if (segments != null) segments.close();
+    }
+
+    public boolean storesInDatabase() {
+        return segments == null;
+    }
+
+    /**
+     * Segment store backing the audit trail, or null when audit rows go to the database.
+     */
+    public AuditSegmentStore segmentStore() {
+        return segments;
     }
 
     public void log(
@@ -28,20 +167,241 @@ public class AuditService {
             Map<String, Object> details
     ) {
         try {
-            String json = details == null ? null : objectMapper.writeValueAsString(details);
-
-            AuditLog log = AuditLog.builder()
+            if (!async) {
+                AuditLog entry = toAuditLogEntry(action, userId, entityId, ipAddress, details);
+                if (segments != null) appendAfterCommit(List.of(entry));
+                else auditLogRepository.save(entry);
+                return;
+            }
+            publishAfterCommit(List.of(new Event(AuditLog.builder()
                     .action(action)
                     .userId(userId)
                     .entityId(entityId)
                     .ipAddress(ipAddress)
-                    .details(json)
                     .createdAt(OffsetDateTime.now())
-                    .build();
+                    .build(), details)));
+        } catch (Exception ignored) {
+            // audit must NEVER break business flow
+        }
+    }
 
-            auditLogRepository.save(log);
+    /**
+     * Hands prebuilt rows (see {@link #toAuditLogEntry}) to the configured store, after commit
+     * when a transaction is active. For writers whose audit rows cannot go into their own
+     * JDBC batch because the store is not the database.
+     */
+    public void record(List<AuditLog> entries) {
+        try {
+            if (!async) {
+                appendAfterCommit(entries);
+                return;
+            }
+            List<Event> events = new ArrayList<>(entries.size());
+            for (AuditLog e : entries) events.add(new Event(e, null));
+            publishAfterCommit(events);
         } catch (Exception ignored) {
             // audit must NEVER break business flow
         }
     }
+
+    private void publishAfterCommit(List<Event> events) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a rolled-back posting must not leave an audit row behind
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (Event e : events) publish(e);
+                }
+            });
+        } else {
+            for (Event e : events) publish(e);
+        }
+    }
+
+    // the segment store is outside the caller's transaction, so it only sees committed work
+    private void appendAfterCommit(List<AuditLog> entries) throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            segments.append(entries);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    segments.append(entries);
+                } catch (IOException | RuntimeException ex) {
+                    log.error("Dropping {} audit events: {}", entries.size(), ex.toString());
+                    dropped.increment(entries.size());
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the audit row without saving it, for writers that batch their own inserts.
+     */
+    public AuditLog toAuditLogEntry(
+            String action,
+            UUID userId,
+            UUID entityId,
+            String ipAddress,
+            Map<String, Object> details
+    ) {
+        return AuditLog.builder()
+                .action(action)
+                .userId(userId)
+                .entityId(entityId)
+                .ipAddress(ipAddress)
+                .details(toJson(details))
+                .createdAt(OffsetDateTime.now())
+                .build();
+    }
+
+    private String toJson(Map<String, Object> details) {
+        try {
+            return details == null ? null : objectMapper.writeValueAsString(details);
+        } catch (Exception ignored) {
+            // keep the event even if its details cannot be serialized
+            return null;
+        }
+    }
+
+    // ---------- Pipeline ----------
+
+    private void publish(Event event) {
+        if (running && ring.offer(event)) return;
+        // the writer is behind (or gone): spill on the caller's thread rather than block it
+        event.serialize();
+        spillOrDrop(List.of(event.entry));
+    }
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !ring.isEmpty()) {
+            try {
+                if (ring.drainTo(batch, batchSize) == 0) {
+                    if (running) replaySpill();
+                    LockSupport.parkNanos(idleNanos);
+                    continue;
+                }
+                List<AuditLog> entries = new ArrayList<>(batch.size());
+                for (Event e : batch) entries.add(e.serialize());
+                write(entries);
+            } catch (RuntimeException ex) {
+                log.error("Audit writer error", ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditLog> entries) {
+        if (System.currentTimeMillis() < dbRetryAt) {
+            spillOrDrop(entries);
+            return;
+        }
+        try {
+            flushTimer.record(() -> insert(entries));
+        } catch (RuntimeException ex) {
+            log.warn("Could not write {} audit events, spilling to disk for {} s: {}",
+                    entries.size(), retryMillis / 1000, ex.toString());
+            dbRetryAt = System.currentTimeMillis() + retryMillis;
+            spillOrDrop(entries);
+        }
+    }
+
+    private void insert(List<AuditLog> entries) {
+        if (segments != null) {
+            try {
+                segments.append(entries);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (AuditLog e : entries) {
+            rows.add(new Object[]{
+                    UUIDS.convertToDatabaseColumn(e.getId()),
+                    e.getAction(),
+                    UUIDS.convertToDatabaseColumn(e.getUserId()),
+                    UUIDS.convertToDatabaseColumn(e.getEntityId()),
+                    e.getIpAddress(),
+                    e.getDetails(),
+                    Timestamp.from(e.getCreatedAt().toInstant())
+            });
+        }
+        // rewriteBatchedStatements turns this into multi-row INSERTs
+        jdbc.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private void spillOrDrop(List<AuditLog> entries) {
+        try {
+            if (spill == null) throw new IOException("spill file not open");
+            spill.append(entries);
+            spilled.increment(entries.size());
+        } catch (IOException ex) {
+            log.error("Dropping {} audit events: {}", entries.size(), ex.toString());
+            dropped.increment(entries.size());
+        }
+    }
+
+    // replays sealed segments oldest first; a segment is deleted only once all its rows are in
+    private void replaySpill() {
+        if (System.currentTimeMillis() < dbRetryAt) return;
+        try {
+            if (!spill.hasPending()) return;
+            for (Path segment : spill.rotate()) {
+                List<AuditLog> entries = AuditSpillFile.read(segment);
+                if (segments != null) entries = notYetAppended(entries);
+                for (int i = 0; i < entries.size(); i += batchSize) {
+                    List<AuditLog> chunk = entries.subList(i, Math.min(entries.size(), i + batchSize));
+                    flushTimer.record(() -> insert(chunk));
+                }
+                spill.delete(segment);
+                replayed.increment(entries.size());
+                log.info("Replayed {} spilled audit events from {}", entries.size(), segment.getFileName());
+                // do not starve live events
+                if (!ring.isEmpty()) return;
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Audit spill replay failed, retrying in {} s: {}", retryMillis / 1000, ex.toString());
+            dbRetryAt = System.currentTimeMillis() + retryMillis;
+        }
+    }
+
+    /*
+     * The segment store has no INSERT IGNORE: a spill segment replayed again after a failure
+     * part way through, or events spilled after a partial append, would be chained twice. Drops
+     * entries whose id is already stored (or repeated). Only this writer thread appends while
+     * the writer runs, so nothing can slip in between the check and the append.
+     */
+    private List<AuditLog> notYetAppended(List<AuditLog> entries) throws IOException {
+        if (entries.isEmpty()) return entries;
+        Map<UUID, AuditLog> byId = new LinkedHashMap<>();
+        Instant since = Instant.MAX;
+        for (AuditLog e : entries) {
+            byId.putIfAbsent(e.getId(), e);
+            Instant at = e.getCreatedAt().toInstant();
+            if (at.isBefore(since)) since = at;
+        }
+        byId.keySet().removeAll(segments.existingIds(byId.keySet(), since));
+        return new ArrayList<>(byId.values());
+    }
+
+    private final class Event {
+        final AuditLog entry;
+        final Map<String, Object> details;
+
+        Event(AuditLog entry, Map<String, Object> details) {
+            this.entry = entry;
+            this.details = details;
+        }
+
+        // details are serialized off the request thread
+        AuditLog serialize() {
+            if (details != null) entry.setDetails(toJson(details));
+            return entry;
+        }
+    }
 }
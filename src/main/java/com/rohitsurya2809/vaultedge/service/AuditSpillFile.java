@@ -0,0 +1,225 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.model.AuditLog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only overflow for audit events the database could not take in time.
+ *
+ * Layout of the spill directory:
+ *   audit-spill-<millis>.log   segments, records are [len][crc32][payload] as in {@link LedgerJournal}
+ *
+ * {@link #rotate()} seals the active segment so it can be replayed and deleted while new
+ * events keep spilling into a fresh one.
+ */
+public class AuditSpillFile implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "audit-spill-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    // guards the current segment; a ReentrantLock for the reason given at AuditSegmentStore's lock
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private FileChannel current;
+    private Path currentPath;
+
+    public AuditSpillFile(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    // ---------- Writing ----------
+
+    public void append(List<AuditLog> events) throws IOException {
+        if (events.isEmpty()) return;
+        lock.lock();
+        try {
+            if (current == null) openSegment();
+            for (AuditLog e : events) {
+                byte[] payload = encode(e);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+
+                ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+                buf.putInt(payload.length);
+                buf.putInt((int) crc.getValue());
+                buf.put(payload);
+                buf.flip();
+                while (buf.hasRemaining()) current.write(buf);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the active segment (if any) and returns every sealed segment, oldest first.
+     */
+    public List<Path> rotate() throws IOException {
+        lock.lock();
+        try {
+            closeCurrent();
+            return segments();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        long stamp = System.currentTimeMillis();
+        Path p;
+        // two rotations within one millisecond must not reopen a sealed segment
+        while (Files.exists(p = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, stamp, SEGMENT_SUFFIX)))) stamp++;
+        currentPath = p;
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.force(true);
+            current.close();
+            current = null;
+            currentPath = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closeCurrent();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------- Reading ----------
+
+    public boolean hasPending() throws IOException {
+        lock.lock();
+        try {
+            return current != null || !segments().isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : ds) out.add(p);
+        }
+        out.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        return out;
+    }
+
+    /**
+     * Reads all intact records of a segment. A torn or corrupt tail (crash mid-append) ends the read.
+     */
+    public static List<AuditLog> read(Path segment) throws IOException {
+        List<AuditLog> out = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException eof) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                if (len <= 0 || len > 1 << 24) break;
+                byte[] payload = new byte[len];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException eof) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) break;
+                out.add(decode(payload));
+            }
+        } catch (EOFException ignored) {
+            // torn header
+        }
+        return out;
+    }
+
+    public void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    // ---------- Encoding ----------
+
+    private static byte[] encode(AuditLog e) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bos);
+        writeUuid(out, e.getId());
+        out.writeUTF(e.getAction());
+        writeUuid(out, e.getUserId());
+        writeUuid(out, e.getEntityId());
+        writeString(out, e.getIpAddress());
+        writeString(out, e.getDetails());
+        Instant at = e.getCreatedAt().toInstant();
+        out.writeLong(at.getEpochSecond());
+        out.writeInt(at.getNano());
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static AuditLog decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        AuditLog e = AuditLog.builder()
+                .id(readUuid(in))
+                .action(in.readUTF())
+                .userId(readUuid(in))
+                .entityId(readUuid(in))
+                .ipAddress(readString(in))
+                .details(readString(in))
+                .build();
+        e.setCreatedAt(OffsetDateTime.ofInstant(Instant.ofEpochSecond(in.readLong(), in.readInt()), ZoneOffset.UTC));
+        return e;
+    }
+
+    // details can exceed writeUTF's 64 KB limit
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
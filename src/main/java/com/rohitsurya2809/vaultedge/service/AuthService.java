@@ -1,5 +1,6 @@
 package com.rohitsurya2809.vaultedge.service;
 
+import com.rohitsurya2809.vaultedge.config.Ids;
 import com.rohitsurya2809.vaultedge.dto.RegisterRequest;
 import com.rohitsurya2809.vaultedge.dto.LoginRequest;
 import com.rohitsurya2809.vaultedge.dto.LoginResponse;
@@ -8,56 +9,88 @@ import com.rohitsurya2809.vaultedge.model.AuthUser;
 import com.rohitsurya2809.vaultedge.model.Customer;
 import com.rohitsurya2809.vaultedge.repository.AuthUserRepository;
 import com.rohitsurya2809.vaultedge.repository.CustomerRepository;
+import com.rohitsurya2809.vaultedge.exception.ServiceBusyException;
+import com.rohitsurya2809.vaultedge.security.BoundedPasswordEncoder;
 import com.rohitsurya2809.vaultedge.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Registration and login run on the bounded BCrypt pool ({@link BoundedPasswordEncoder}), so the
+ * returned futures let the servlet thread go while the hash is computed. Latency from
+ * submission to completion (queueing included) is published as auth.register.duration and
+ * auth.login.duration, tagged by outcome.
+ */
 @Service
 public class AuthService {
 
     private final CustomerRepository customerRepository;
     private final AuthUserRepository authUserRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final BoundedPasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final AuditService auditService;
+    private final TransactionTemplate txTemplate;
+    private final MeterRegistry meterRegistry;
 
     public AuthService(CustomerRepository customerRepository,
                        AuthUserRepository authUserRepository,
-                       PasswordEncoder passwordEncoder,
+                       BoundedPasswordEncoder passwordEncoder,
                        JwtUtil jwtUtil,
-                       AuthenticationManager authenticationManager, AuditService auditService) {
+                       AuthenticationManager authenticationManager, AuditService auditService,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
         this.customerRepository = customerRepository;
         this.authUserRepository = authUserRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.authenticationManager = authenticationManager;
         this.auditService = auditService;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
     }
 
     /**
      * Register a new Customer and create corresponding AuthUser.
      */
-    @Transactional
-    public Customer register(RegisterRequest req) {
-        // email uniqueness
+    public CompletableFuture<Customer> register(RegisterRequest req) {
+        return timed("auth.register.duration", () -> passwordEncoder.submit(() -> doRegister(req)));
+    }
+
+    /**
+     * Authenticate credentials and return JWT
+     */
+    public CompletableFuture<LoginResponse> login(LoginRequest req) {
+        return timed("auth.login.duration", () -> passwordEncoder.submit(() -> doLogin(req)));
+    }
+
+    private Customer doRegister(RegisterRequest req) {
+        // email uniqueness (checked before hashing; a racing duplicate still hits the unique key)
         customerRepository.findByEmail(req.getEmail()).ifPresent(c -> {
             throw new BadRequestException("Email already exists");
         });
 
+        // one hash for both rows, computed outside the transaction
+        String hash = passwordEncoder.encode(req.getPassword());
+        return txTemplate.execute(status -> save(req, hash));
+    }
+
+    private Customer save(RegisterRequest req, String hash) {
         Customer c = Customer.builder()
                 .fullName(req.getFullName())
                 .email(req.getEmail())
-                .password(passwordEncoder.encode(req.getPassword())) // hashed
+                .password(hash)
                 .phone(req.getPhone())
                 .address(req.getAddress())
                 .build();
@@ -66,10 +99,10 @@ public class AuthService {
 
         // create AuthUser -> username = email
         AuthUser au = AuthUser.builder()
-                .id(UUID.randomUUID())
+                .id(Ids.next())
                 .customer(saved)
                 .username(saved.getEmail())
-                .password(passwordEncoder.encode(req.getPassword()))
+                .password(hash)
                 .roles("ROLE_USER")
                 .enabled(true)
                 .build();
@@ -79,13 +112,10 @@ public class AuthService {
         return saved;
     }
 
-    /**
-     * Authenticate credentials and return JWT
-     */
-    public LoginResponse login(LoginRequest req) {
+    private LoginResponse doLogin(LoginRequest req) {
     try {
-        // 1) authenticate
-        Authentication authentication = authenticationManager.authenticate(
+        // 1) authenticate (BCrypt runs inline, we are already on the hashing pool)
+        authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         req.getUsername(),
                         req.getPassword()
@@ -112,10 +142,7 @@ public class AuthService {
                 claims
         );
 
-        // 5) set security context
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-        // 6) audit SUCCESS
+        // 5) audit SUCCESS
         auditService.log(
                 "LOGIN_SUCCESS",
                 userId,
@@ -124,7 +151,7 @@ public class AuthService {
                 Map.of("username", authUser.getUsername())
         );
 
-        // 7) return response
+        // 6) return response
         return LoginResponse.builder()
                 .token(token)
                 .tokenType("Bearer")
@@ -146,4 +173,22 @@ public class AuthService {
     }
 }
 
+    private <T> CompletableFuture<T> timed(String name, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (ServiceBusyException ex) {
+            sample.stop(timer(name, "rejected"));
+            throw ex;
+        }
+        return future.whenComplete((r, ex) -> sample.stop(timer(name, ex == null ? "success" : "failure")));
+    }
+
+    private Timer timer(String name, String outcome) {
+        return Timer.builder(name)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,103 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.AccountBalanceResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Point-in-time balances.
+ *
+ * Postings store balance_after, so the balance as of T is the balance_after of the last
+ * posting at or before T, ties within a second going to the later insert (seq, see V15): one
+ * backward probe of the (account_id, created_at, seq) index. If that
+ * row has no balance_after (postings on striped accounts, see {@link BalanceStripes}), the
+ * closest daily checkpoint (account_balance_checkpoints, written by {@link DailyRollupService})
+ * plus the signed postings since it is used instead, which is at most part of a day of rows. Before the first posting/checkpoint the balance is derived from
+ * the current balance minus everything posted after T.
+ */
+@Service
+public class BalanceHistoryService {
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    private static final String SIGNED_AMOUNT = DailyRollupService.SIGNED_AMOUNT;
+
+    private final JdbcTemplate jdbc;
+
+    public BalanceHistoryService(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public AccountBalanceResponse balanceAsOf(UUID accountId, OffsetDateTime asOf) {
+        return AccountBalanceResponse.builder()
+                .accountId(accountId)
+                .asOf(asOf)
+                .balance(balanceAt(accountId, asOf.toInstant(), true))
+                .build();
+    }
+
+    /**
+     * Opening balance (before any posting at {@code from}) and closing balance (after every
+     * posting at or before {@code to}).
+     */
+    public AccountBalanceResponse balanceRange(UUID accountId, OffsetDateTime from, OffsetDateTime to) {
+        if (from.isAfter(to)) throw new BadRequestException("from must not be after to");
+        return AccountBalanceResponse.builder()
+                .accountId(accountId)
+                .from(from)
+                .to(to)
+                .openingBalance(balanceAt(accountId, from.toInstant(), false))
+                .closingBalance(balanceAt(accountId, to.toInstant(), true))
+                .build();
+    }
+
+    // balance after all postings with created_at <= at (inclusive) or < at (exclusive)
+    private BigDecimal balanceAt(UUID accountId, Instant at, boolean inclusive) {
+        byte[] id = UUIDS.convertToDatabaseColumn(accountId);
+        Timestamp ts = Timestamp.from(at);
+        String bound = inclusive ? "<=" : "<";
+
+        List<BigDecimal> last = jdbc.query("SELECT balance_after FROM transactions WHERE account_id = ? AND created_at " + bound + " ? "
+                        + "ORDER BY created_at DESC, seq DESC LIMIT 1",
+                (rs, i) -> rs.getBigDecimal(1), id, ts);
+        if (!last.isEmpty() && last.get(0) != null) return last.get(0);
+
+        // checkpoint of day D holds the balance at D+1 00:00 UTC, so only days before the one containing 'at' qualify
+        LocalDate latestDay = LocalDate.ofInstant(at, ZoneOffset.UTC).minusDays(1);
+        List<Object[]> checkpoint = jdbc.query("SELECT day, closing_balance FROM account_balance_checkpoints "
+                        + "WHERE account_id = ? AND day <= ? ORDER BY day DESC LIMIT 1",
+                (rs, i) -> new Object[]{rs.getObject(1, LocalDate.class), rs.getBigDecimal(2)}, id, latestDay);
+        if (!checkpoint.isEmpty()) {
+            Instant since = ((LocalDate) checkpoint.get(0)[0]).plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+            BigDecimal delta = jdbc.queryForObject("SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM transactions "
+                            + "WHERE account_id = ? AND created_at >= ? AND created_at " + bound + " ?",
+                    BigDecimal.class, id, Timestamp.from(since), ts);
+            return ((BigDecimal) checkpoint.get(0)[1]).add(delta);
+        }
+
+        // a striped account's balance includes its stripes
+        List<Object[]> account = jdbc.query("SELECT balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_stripes s "
+                        + "WHERE s.account_id = accounts.id), 0), created_at FROM accounts WHERE id = ?",
+                (rs, i) -> new Object[]{rs.getBigDecimal(1), rs.getTimestamp(2)}, (Object) id);
+        if (account.isEmpty()) throw new NotFoundException("Account not found: " + accountId);
+        Timestamp createdAt = (Timestamp) account.get(0)[1];
+        if (createdAt != null && createdAt.toInstant().isAfter(at)) return BigDecimal.ZERO;
+
+        BigDecimal after = jdbc.queryForObject("SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM transactions "
+                        + "WHERE account_id = ? AND created_at " + (inclusive ? ">" : ">=") + " ?",
+                BigDecimal.class, id, ts);
+        return ((BigDecimal) account.get(0)[0]).subtract(after);
+    }
+}
@@ -0,0 +1,360 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sub-balances for hot accounts (account_balance_stripes).
+ *
+ * A striped account's balance is accounts.balance plus the sum of its stripe rows. Credits
+ * update one stripe (round-robin or random), so concurrent deposits to the same account lock
+ * different rows and no longer queue on the accounts row. Debits take the richest stripe that
+ * covers the amount, else sweep: every stripe is folded into the accounts row and the debit is
+ * checked against the total. A background job folds the stripes back periodically
+ * (accounts.stripes.consolidate-seconds), which keeps the sweep rare and the stripes small.
+ *
+ * The stripe count per account is cached, but only as a routing hint: a stripe credit that
+ * finds no row falls back to the accounts row, and a plain debit that fails on an account that
+ * turns out to be striped invalidates the count and throws a ConcurrencyFailureException, so
+ * the unit of work is retried. Locks are always taken stripes first, then the accounts row (a
+ * credit's transactions INSERT share-locks the account through its foreign key after the
+ * stripe), never the other way round.
+ *
+ * Postings on a striped account have no exact running balance (other stripes change
+ * concurrently), so their balance_after is NULL; the current balance comes from
+ * GET /accounts/{id}/balance, and history and checkpoints use net flows from the checkpoint
+ * seeded when striping is switched on.
+ */
+@Service
+public class BalanceStripes {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceStripes.class);
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+    // stays well below MySQL's placeholder limit
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate txTemplate;
+    private final AccountDirectory accountDirectory;
+    private final Cache<UUID, Integer> stripeCounts;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final boolean random;
+    private final int maxCount;
+    private final long consolidateSeconds;
+    private final boolean ledgerEngineEnabled;
+    private final Counter sweeps;
+    private final Counter folds;
+
+    private ScheduledExecutorService scheduler;
+
+    public BalanceStripes(JdbcTemplate jdbc,
+                          PlatformTransactionManager transactionManager,
+                          AccountDirectory accountDirectory,
+                          MeterRegistry meterRegistry,
+                          @Value("${accounts.stripes.selection:round-robin}") String selection,
+                          @Value("${accounts.stripes.max-count:64}") int maxCount,
+                          @Value("${accounts.stripes.consolidate-seconds:60}") long consolidateSeconds,
+                          @Value("${accounts.stripes.cache-seconds:30}") long cacheSeconds,
+                          @Value("${ledger.engine.enabled:false}") boolean ledgerEngineEnabled) {
+        this.jdbc = jdbc;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.accountDirectory = accountDirectory;
+        this.stripeCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, cacheSeconds)))
+                .build();
+        this.random = "random".equalsIgnoreCase(selection.trim());
+        this.maxCount = Math.max(1, maxCount);
+        this.consolidateSeconds = consolidateSeconds;
+        this.ledgerEngineEnabled = ledgerEngineEnabled;
+        this.sweeps = Counter.builder("accounts.stripes.sweeps")
+                .description("Debits on striped accounts that had to fold every stripe")
+                .register(meterRegistry);
+        this.folds = Counter.builder("accounts.stripes.consolidations")
+                .description("Striped accounts whose stripes were folded into the account row")
+                .register(meterRegistry);
+    }
+
+    // ---------- Consolidation job ----------
+
+    @PostConstruct
+    public void start() {
+        if (consolidateSeconds <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stripe-consolidation");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::consolidateQuietly, consolidateSeconds, consolidateSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void consolidateQuietly() {
+        try {
+            consolidateAll();
+        } catch (RuntimeException ex) {
+            log.warn("Stripe consolidation failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Folds the stripes of every striped account into its accounts row, one short transaction
+     * per account. Returns the number of accounts that had something to fold.
+     */
+    public int consolidateAll() {
+        List<UUID> striped = jdbc.query("SELECT id FROM accounts WHERE stripe_count > 0",
+                (rs, i) -> UUIDS.convertToEntityAttribute(rs.getBytes(1)));
+        int folded = 0;
+        for (UUID id : striped) {
+            if (consolidate(id)) folded++;
+        }
+        return folded;
+    }
+
+    public boolean consolidate(UUID accountId) {
+        Boolean moved = txTemplate.execute(status -> {
+            byte[] key = UUIDS.convertToDatabaseColumn(accountId);
+            BigDecimal pending = lockStripes(key);
+            if (lockAccount(key) == null || pending.signum() == 0) return false;
+            fold(key, pending, BigDecimal.ZERO);
+            return true;
+        });
+        if (Boolean.TRUE.equals(moved)) folds.increment();
+        return Boolean.TRUE.equals(moved);
+    }
+
+    // ---------- Configuration ----------
+
+    /**
+     * Switches an account to {@code count} stripes (0 turns striping off). Whatever the old
+     * stripes held is folded into the accounts row first, so the balance does not change.
+     * Turning striping on also writes yesterday's closing balance checkpoint, which the daily
+     * rollup chains the striped account's later checkpoints on.
+     */
+    public int setStripeCount(UUID accountId, int count) {
+        if (count < 0 || count > maxCount) throw new BadRequestException("count must be between 0 and " + maxCount);
+        if (ledgerEngineEnabled && count > 0) {
+            // the engine already owns each account's balance in memory and writes it as an absolute value
+            throw new BadRequestException("Striped accounts are not used with the ledger engine");
+        }
+        txTemplate.executeWithoutResult(status -> {
+            byte[] key = UUIDS.convertToDatabaseColumn(accountId);
+            BigDecimal pending = lockStripes(key);
+            Object[] acc = lockAccount(key);
+            if (acc == null) throw new NotFoundException("Account not found: " + accountId);
+            jdbc.update("DELETE FROM account_balance_stripes WHERE account_id = ?", (Object) key);
+            jdbc.update("UPDATE accounts SET balance = balance + ?, stripe_count = ?, version = version + 1 WHERE id = ?",
+                    pending, count, key);
+            if (count > 0) seedCheckpoint(key, ((BigDecimal) acc[0]).add(pending));
+            List<Object[]> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) rows.add(new Object[]{key, i});
+            if (!rows.isEmpty()) {
+                jdbc.batchUpdate("INSERT INTO account_balance_stripes (account_id, stripe, balance) VALUES (?, ?, 0)", rows);
+            }
+        });
+        stripeCounts.invalidate(accountId);
+        return count;
+    }
+
+    // ---------- Postings (inside the caller's transaction) ----------
+
+    /**
+     * Credits one stripe of a striped account. Returns null when the account is not striped, in
+     * which case the caller credits the accounts row as usual.
+     */
+    public PostingLeg credit(UUID accountId, BigDecimal amount) {
+        int count = stripeCount(accountId);
+        if (count == 0) return null;
+        int stripe = random ? ThreadLocalRandom.current().nextInt(count) : Math.floorMod(roundRobin.getAndIncrement(), count);
+        int n = jdbc.update("UPDATE account_balance_stripes SET balance = balance + ? WHERE account_id = ? AND stripe = ?",
+                amount, UUIDS.convertToDatabaseColumn(accountId), stripe);
+        if (n == 0) {
+            // striping was turned off (or resized) since the count was cached
+            stripeCounts.invalidate(accountId);
+            return null;
+        }
+        return new PostingLeg(null, accountDirectory.get(accountId).getCustomerId());
+    }
+
+    /**
+     * Debits a striped account: from one stripe that covers the amount, else from the accounts
+     * row after folding every stripe into it. Returns null when the account is not striped (or
+     * does not exist); throws {@link BadRequestException} when the whole balance is too low.
+     * Must run before anything else in the transaction locks the accounts row.
+     */
+    public PostingLeg debit(UUID accountId, BigDecimal amount, String insufficientMessage) {
+        if (stripeCount(accountId) == 0) return null;
+        byte[] key = UUIDS.convertToDatabaseColumn(accountId);
+        int n = jdbc.update("UPDATE account_balance_stripes SET balance = balance - ? "
+                + "WHERE account_id = ? AND balance >= ? ORDER BY balance DESC LIMIT 1", amount, key, amount);
+        if (n == 1) return new PostingLeg(null, accountDirectory.get(accountId).getCustomerId());
+        return sweep(accountId, amount, insufficientMessage);
+    }
+
+    private PostingLeg sweep(UUID accountId, BigDecimal amount, String insufficientMessage) {
+        byte[] key = UUIDS.convertToDatabaseColumn(accountId);
+        BigDecimal pending = lockStripes(key);
+        Object[] acc = lockAccount(key);
+        if (acc == null) return null;
+        if ((int) acc[2] == 0) {
+            stripeCounts.invalidate(accountId);
+            return null;
+        }
+        sweeps.increment();
+        if (((BigDecimal) acc[0]).add(pending).compareTo(amount) < 0) throw new BadRequestException(insufficientMessage);
+        fold(key, pending, amount);
+        return new PostingLeg(null, (UUID) acc[1]);
+    }
+
+    /**
+     * Drops the cached stripe count of an account, for a caller that found it stale.
+     */
+    public void invalidate(UUID accountId) {
+        stripeCounts.invalidate(accountId);
+    }
+
+    /**
+     * Locks a striped account's stripes, then its accounts row, for a caller that locks many
+     * accounts up front (see {@link JdbcPostingWriter#lockAccounts}).
+     */
+    public void lock(UUID accountId) {
+        byte[] key = UUIDS.convertToDatabaseColumn(accountId);
+        lockStripes(key);
+        lockAccount(key);
+    }
+
+    /**
+     * The accounts among {@code accountIds} that currently have stripes (a plain read, no locks).
+     */
+    public Set<UUID> stripedAmong(Collection<UUID> accountIds) {
+        Set<UUID> out = new HashSet<>();
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            List<UUID> part = ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY));
+            Object[] args = new Object[part.size()];
+            for (int j = 0; j < args.length; j++) args[j] = UUIDS.convertToDatabaseColumn(part.get(j));
+            String in = String.join(",", Collections.nCopies(args.length, "?"));
+            jdbc.query("SELECT id FROM accounts WHERE stripe_count > 0 AND id IN (" + in + ")",
+                    rs -> { out.add(UUIDS.convertToEntityAttribute(rs.getBytes(1))); }, args);
+        }
+        return out;
+    }
+
+    // ---------- Reads ----------
+
+    /**
+     * Sum of the stripes of each given account (accounts without stripes are left out). Read it
+     * in the same transaction as accounts.balance to get an exact total.
+     */
+    public Map<UUID, BigDecimal> stripeTotals(Collection<UUID> accountIds) {
+        Map<UUID, BigDecimal> out = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            List<UUID> part = ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY));
+            Object[] args = new Object[part.size()];
+            for (int j = 0; j < args.length; j++) args[j] = UUIDS.convertToDatabaseColumn(part.get(j));
+            String in = String.join(",", Collections.nCopies(args.length, "?"));
+            jdbc.query("SELECT account_id, SUM(balance) FROM account_balance_stripes WHERE account_id IN (" + in + ") "
+                    + "GROUP BY account_id", rs -> {
+                out.put(UUIDS.convertToEntityAttribute(rs.getBytes(1)), rs.getBigDecimal(2));
+            }, args);
+        }
+        return out;
+    }
+
+    // ---------- Helpers ----------
+
+    private int stripeCount(UUID accountId) {
+        Integer count = stripeCounts.get(accountId, id -> {
+            List<Integer> rows = jdbc.query("SELECT stripe_count FROM accounts WHERE id = ?",
+                    (rs, i) -> rs.getInt(1), (Object) UUIDS.convertToDatabaseColumn(id));
+            return rows.isEmpty() ? null : rows.get(0);
+        });
+        return count != null ? count : 0;
+    }
+
+    // locks every stripe of the account and returns their sum
+    private BigDecimal lockStripes(byte[] key) {
+        List<BigDecimal> parts = jdbc.query("SELECT balance FROM account_balance_stripes WHERE account_id = ? FOR UPDATE",
+                (rs, i) -> rs.getBigDecimal(1), (Object) key);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal p : parts) sum = sum.add(p);
+        return sum;
+    }
+
+    // {balance, customerId, stripeCount} of the locked accounts row, or null if it does not exist
+    private Object[] lockAccount(byte[] key) {
+        List<Object[]> rows = jdbc.query("SELECT balance, customer_id, stripe_count FROM accounts WHERE id = ? FOR UPDATE",
+                (rs, i) -> new Object[]{rs.getBigDecimal(1), UUIDS.convertToEntityAttribute(rs.getBytes(2)), rs.getInt(3)},
+                (Object) key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // closing balance of yesterday (UTC): the exact balance now, less today's postings. If the
+    // account posted yesterday, rolling that day rewrites it with the same value from balance_after
+    private void seedCheckpoint(byte[] key, BigDecimal balance) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        BigDecimal sinceMidnight = jdbc.queryForObject("SELECT COALESCE(SUM(" + DailyRollupService.SIGNED_AMOUNT + "), 0) "
+                        + "FROM transactions WHERE account_id = ? AND created_at >= ?",
+                BigDecimal.class, key, Timestamp.from(today.atStartOfDay().toInstant(ZoneOffset.UTC)));
+        jdbc.update("INSERT INTO account_balance_checkpoints (account_id, day, closing_balance) VALUES (?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE closing_balance = VALUES(closing_balance)",
+                key, today.minusDays(1), balance.subtract(sinceMidnight));
+    }
+
+    // moves the (locked) stripes into the accounts row, minus an optional debit
+    private void fold(byte[] key, BigDecimal pending, BigDecimal debit) {
+        if (pending.signum() != 0) {
+            jdbc.update("UPDATE account_balance_stripes SET balance = 0 WHERE account_id = ?", (Object) key);
+        }
+        jdbc.update("UPDATE accounts SET balance = balance + ? - ?, version = version + 1 WHERE id = ?",
+                pending, debit, key);
+    }
+
+    /**
+     * One balance leg of a posting: the balance it left behind (null on striped accounts) and
+     * the account owner.
+     */
+    public static final class PostingLeg {
+        private final BigDecimal balanceAfter;
+        private final UUID ownerId;
+
+        PostingLeg(BigDecimal balanceAfter, UUID ownerId) {
+            this.balanceAfter = balanceAfter;
+            this.ownerId = ownerId;
+        }
+
+        public BigDecimal getBalanceAfter() { return balanceAfter; }
+        public UUID getOwnerId() { return ownerId; }
+    }
+}
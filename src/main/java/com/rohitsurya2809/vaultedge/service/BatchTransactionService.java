@@ -0,0 +1,392 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.dto.*;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.ConflictException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Executes a streamed JSON array of deposit/withdraw/transfer items.
+ *
+ * Items are read one at a time from the request body, never bound into one big list.
+ * BEST_EFFORT commits every {@code chunk-size} items in their own transaction, which locks all of
+ * the chunk's accounts up front in key order, and isolates item failures; ALL_OR_NOTHING applies everything in one transaction and rolls back (and
+ * stops reading) at the first failed item. Rows are written through {@link JdbcPostingWriter}.
+ * Item idempotency keys are reserved in the transaction that posts the item, so two concurrent
+ * runs of the same batch post each keyed item once.
+ */
+@Service
+public class BatchTransactionService {
+
+    public enum Mode { ALL_OR_NOTHING, BEST_EFFORT }
+
+    private final ObjectMapper objectMapper;
+    private final JdbcPostingWriter writer;
+    private final TransactionTemplate txTemplate;
+    private final IdempotencyService idempotencyService;
+    private final AccountDirectory accountDirectory;
+    private final TransactionService transactionService;
+    private final LedgerEngine ledgerEngine;
+    private final ConflictRetry conflictRetry;
+    private final int maxItems;
+    private final int chunkSize;
+
+    public BatchTransactionService(ObjectMapper objectMapper,
+                                   JdbcPostingWriter writer,
+                                   PlatformTransactionManager transactionManager,
+                                   IdempotencyService idempotencyService,
+                                   AccountDirectory accountDirectory,
+                                   TransactionService transactionService,
+                                   LedgerEngine ledgerEngine,
+                                   ConflictRetry conflictRetry,
+                                   @Value("${ledger.batch.max-items:10000}") int maxItems,
+                                   @Value("${ledger.batch.chunk-size:200}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.writer = writer;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.idempotencyService = idempotencyService;
+        this.accountDirectory = accountDirectory;
+        this.transactionService = transactionService;
+        this.ledgerEngine = ledgerEngine;
+        this.conflictRetry = conflictRetry;
+        this.maxItems = Math.max(1, maxItems);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public BatchResponse execute(InputStream body, String modeParam, UUID callerId) {
+        Mode mode;
+        try {
+            mode = Mode.valueOf(modeParam == null ? "BEST_EFFORT" : modeParam.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("mode must be ALL_OR_NOTHING or BEST_EFFORT");
+        }
+        if (mode == Mode.ALL_OR_NOTHING && ledgerEngine.isEnabled()) {
+            throw new BadRequestException("ALL_OR_NOTHING batches are not available while the ledger engine is enabled");
+        }
+
+        Run run = new Run(callerId);
+        boolean committed;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Batch body must be a JSON array");
+            }
+            committed = mode == Mode.ALL_OR_NOTHING ? allOrNothing(parser, run) : bestEffort(parser, run);
+        } catch (JsonProcessingException | UncheckedIOException ex) {
+            throw new BadRequestException("Malformed batch body: " + ex.getMessage());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        int succeeded = 0;
+        int failed = 0;
+        for (BatchItemResult r : run.results) {
+            if ("SUCCESS".equals(r.getStatus()) || "REPLAYED".equals(r.getStatus())) succeeded++;
+            else if ("FAILED".equals(r.getStatus())) failed++;
+        }
+        return BatchResponse.builder()
+                .mode(mode.name())
+                .committed(committed)
+                .total(run.results.size())
+                .succeeded(succeeded)
+                .failed(failed)
+                .results(run.results)
+                .build();
+    }
+
+    // ---------- Modes ----------
+
+    private boolean bestEffort(JsonParser parser, Run run) {
+        List<Staged> chunk = new ArrayList<>(chunkSize);
+        while (true) {
+            BatchItemRequest item;
+            try {
+                item = next(parser);
+            } catch (IOException | BadRequestException ex) {
+                // keep what was already committed; report where reading stopped
+                applyChunk(chunk, run);
+                run.results.add(result(run.index, "FAILED", null, null, "Malformed batch item: " + ex.getMessage()));
+                return true;
+            }
+            if (item == null) break;
+            if (run.index >= maxItems) {
+                applyChunk(chunk, run);
+                run.results.add(result(run.index, "FAILED", item.getIdempotencyKey(), null,
+                        "Batch item limit of " + maxItems + " exceeded; remaining items were not read"));
+                return true;
+            }
+            chunk.add(new Staged(run.index++, item));
+            if (chunk.size() >= chunkSize) applyChunk(chunk, run);
+        }
+        applyChunk(chunk, run);
+        return true;
+    }
+
+    private void applyChunk(List<Staged> chunk, Run run) {
+        if (chunk.isEmpty()) return;
+        prefetchAccounts(chunk, run);
+
+        if (ledgerEngine.isEnabled()) {
+            // engine postings are individually durable; there is no shared transaction to join
+            for (Staged s : chunk) run.results.add(viaEngine(s, run));
+            chunk.clear();
+            return;
+        }
+
+        List<BatchItemResult> staged = new ArrayList<>(chunk.size());
+        Map<String, TransactionResponse> pendingKeys = new HashMap<>();
+        List<UUID> accounts = accountsOf(chunk);
+        try {
+            // the chunk is rebuilt from scratch on every attempt; it is not charged to its accounts
+            // in the contention stats, a chunk touches too many of them to point at the hot one
+            conflictRetry.run(List.of(), () -> txTemplate.execute(status -> {
+                staged.clear();
+                pendingKeys.clear();
+                // items still apply in arrival order, but every row lock is taken here, in key order
+                writer.lockAccounts(accounts);
+                JdbcPostingWriter.Rows rows = new JdbcPostingWriter.Rows();
+                for (Staged s : chunk) staged.add(applyItem(s, run, rows, pendingKeys));
+                writer.flush(rows);
+                return null;
+            }));
+            run.seenKeys.putAll(pendingKeys);
+            run.results.addAll(staged);
+        } catch (RuntimeException ex) {
+            for (Staged s : chunk) {
+                run.results.add(result(s.index, "FAILED", s.item.getIdempotencyKey(), null,
+                        "Batch chunk could not be committed: " + ex.getMessage()));
+            }
+        }
+        chunk.clear();
+    }
+
+    private boolean allOrNothing(JsonParser parser, Run run) {
+        Boolean committed = txTemplate.execute(status -> {
+            JdbcPostingWriter.Rows rows = new JdbcPostingWriter.Rows();
+            Map<String, TransactionResponse> pendingKeys = new HashMap<>();
+            BatchItemRequest item;
+            while ((item = nextUnchecked(parser)) != null) {
+                if (run.index >= maxItems) {
+                    throw new BadRequestException("Batch item limit of " + maxItems + " exceeded");
+                }
+                BatchItemResult r = applyItem(new Staged(run.index++, item), run, rows, pendingKeys);
+                run.results.add(r);
+                if ("FAILED".equals(r.getStatus())) {
+                    // stop reading: nothing after this can commit, and the row locks should go now
+                    status.setRollbackOnly();
+                    return false;
+                }
+                if (rows.size() >= chunkSize) writer.flush(rows); // keep the row buffer bounded
+            }
+            writer.flush(rows);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(committed)) {
+            for (BatchItemResult r : run.results) {
+                if ("SUCCESS".equals(r.getStatus())) {
+                    r.setStatus("ROLLED_BACK");
+                    r.setTransaction(null);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // ---------- Items ----------
+
+    private BatchItemResult applyItem(Staged s, Run run, JdbcPostingWriter.Rows rows,
+                                      Map<String, TransactionResponse> pendingKeys) {
+        String key = s.item.getIdempotencyKey();
+        String scoped = idempotencyService.scope(run.callerId, key);
+        try {
+            TransactionResponse prior = priorResult(key, scoped, run, pendingKeys);
+            if (prior != null) return result(s.index, "REPLAYED", key, prior, null);
+
+            Posting p = prepare(s.item, run);
+            Supplier<BatchItemResult> post = () -> {
+                if (scoped != null) {
+                    TransactionResponse stored = idempotencyService.reserve(scoped, TransactionResponse.class);
+                    if (stored != null) return result(s.index, "REPLAYED", key, stored, null);
+                }
+                PostingResult r = writer.apply(p, rows);
+                if (scoped != null) {
+                    idempotencyService.save(scoped, r.getResponse());
+                    pendingKeys.put(key, r.getResponse());
+                }
+                return result(s.index, "SUCCESS", key, r.getResponse(), null);
+            };
+            // a failed item must not keep its key reserved, nor a transfer its first leg
+            return scoped != null || p.getType() == Posting.Type.TRANSFER ? writer.atomically(rows, post) : post.get();
+        } catch (NotFoundException | BadRequestException | ConflictException ex) {
+            return result(s.index, "FAILED", key, null, ex.getMessage());
+        }
+    }
+
+    private BatchItemResult viaEngine(Staged s, Run run) {
+        String key = s.item.getIdempotencyKey();
+        String scoped = idempotencyService.scope(run.callerId, key);
+        try {
+            Posting p = prepare(s.item, run);
+            TransactionResponse resp = switch (p.getType()) {
+                case DEPOSIT -> transactionService.deposit(p.getAccountId(),
+                        DepositRequest.builder().amount(p.getAmount()).build(), scoped);
+                case WITHDRAW -> transactionService.withdraw(p.getAccountId(),
+                        WithdrawRequest.builder().amount(p.getAmount()).build(), scoped);
+                case TRANSFER -> transactionService.transfer(TransferRequest.builder()
+                        .fromAccountId(p.getAccountId())
+                        .toAccountId(p.getCounterpartyId())
+                        .amount(p.getAmount())
+                        .referenceId(p.getReferenceId())
+                        .build(), scoped);
+            };
+            return result(s.index, "SUCCESS", key, resp, null);
+        } catch (NotFoundException | BadRequestException ex) {
+            return result(s.index, "FAILED", key, null, ex.getMessage());
+        }
+    }
+
+    // keys already completed by this run or an earlier request; reserve() has the final say
+    private TransactionResponse priorResult(String key, String scoped, Run run, Map<String, TransactionResponse> pendingKeys) {
+        if (key == null) return null;
+        TransactionResponse prior = pendingKeys.get(key);
+        if (prior == null) prior = run.seenKeys.get(key);
+        if (prior == null) prior = idempotencyService.getIfExists(scoped, TransactionResponse.class);
+        return prior;
+    }
+
+    /**
+     * Validates an item and checks that the caller owns the account it debits (or, for
+     * deposits, credits) and that the accounts can take the posting - the same rules as the
+     * single-item endpoints.
+     */
+    private Posting prepare(BatchItemRequest item, Run run) {
+        String type = item.getType() == null ? "" : item.getType().trim().toUpperCase();
+        BigDecimal amount = item.getAmount();
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BadRequestException("Amount must be greater than 0");
+        }
+
+        switch (type) {
+            case "DEPOSIT", "WITHDRAW" -> {
+                if (item.getAccountId() == null) throw new BadRequestException("accountId is required");
+                AccountDirectory.requireActive(item.getAccountId(), requireOwner(item.getAccountId(), run, "Not owner of account"));
+                return "DEPOSIT".equals(type)
+                        ? Posting.deposit(item.getAccountId(), amount)
+                        : Posting.withdraw(item.getAccountId(), amount);
+            }
+            case "TRANSFER" -> {
+                if (item.getFromAccountId() == null || item.getToAccountId() == null) {
+                    throw new BadRequestException("Both fromAccountId and toAccountId are required");
+                }
+                if (item.getFromAccountId().equals(item.getToAccountId())) {
+                    throw new BadRequestException("From and To accounts must differ");
+                }
+                AccountDirectory.Entry source = requireOwner(item.getFromAccountId(), run, "Not owner of source account");
+                AccountDirectory.Entry target = account(item.getToAccountId(), run);
+                if (target == null) throw new NotFoundException("Destination account not found: " + item.getToAccountId());
+                AccountDirectory.requireActive(item.getFromAccountId(), source);
+                AccountDirectory.requireActive(item.getToAccountId(), target);
+                AccountDirectory.requireSameCurrency(source, target);
+                return Posting.transfer(item.getFromAccountId(), item.getToAccountId(), amount, item.getReferenceId());
+            }
+            default -> throw new BadRequestException("Unknown item type: " + item.getType());
+        }
+    }
+
+    private AccountDirectory.Entry requireOwner(UUID accountId, Run run, String message) {
+        AccountDirectory.Entry acc = account(accountId, run);
+        if (acc == null) throw new NotFoundException("Account not found: " + accountId);
+        if (!acc.isOwnedBy(run.callerId)) throw new BadRequestException(message);
+        return acc;
+    }
+
+    private AccountDirectory.Entry account(UUID accountId, Run run) {
+        return run.accounts.computeIfAbsent(accountId, accountDirectory::find);
+    }
+
+    // one directory lookup for every account the chunk touches
+    private void prefetchAccounts(List<Staged> chunk, Run run) {
+        Set<UUID> ids = new HashSet<>();
+        for (UUID id : accountsOf(chunk)) {
+            if (!run.accounts.containsKey(id)) ids.add(id);
+        }
+        if (!ids.isEmpty()) run.accounts.putAll(accountDirectory.findAll(ids));
+    }
+
+    private static List<UUID> accountsOf(List<Staged> chunk) {
+        List<UUID> ids = new ArrayList<>(chunk.size() * 2);
+        for (Staged s : chunk) {
+            BatchItemRequest item = s.item;
+            for (UUID id : new UUID[]{item.getAccountId(), item.getFromAccountId(), item.getToAccountId()}) {
+                if (id != null) ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // ---------- Parsing ----------
+
+    private BatchItemRequest next(JsonParser parser) throws IOException {
+        JsonToken t = parser.nextToken();
+        if (t == null || t == JsonToken.END_ARRAY) return null;
+        if (t != JsonToken.START_OBJECT) throw new BadRequestException("Batch items must be JSON objects");
+        return objectMapper.readValue(parser, BatchItemRequest.class);
+    }
+
+    private BatchItemRequest nextUnchecked(JsonParser parser) {
+        try {
+            return next(parser);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static BatchItemResult result(int index, String status, String key, TransactionResponse tx, String error) {
+        return BatchItemResult.builder()
+                .index(index)
+                .status(status)
+                .idempotencyKey(key)
+                .transaction(tx)
+                .error(error)
+                .build();
+    }
+
+    private static final class Staged {
+        final int index;
+        final BatchItemRequest item;
+
+        Staged(int index, BatchItemRequest item) {
+            this.index = index;
+            this.item = item;
+        }
+    }
+
+    /** Per-request state: results so far plus lookups reused across items. */
+    private static final class Run {
+        final UUID callerId;
+        final Map<UUID, AccountDirectory.Entry> accounts = new HashMap<>();
+        final Map<String, TransactionResponse> seenKeys = new HashMap<>();
+        final List<BatchItemResult> results = new ArrayList<>();
+        int index;
+
+        Run(UUID callerId) {
+            this.callerId = callerId;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer queue (Vyukov's array queue).
+ *
+ * Every slot carries a sequence number: a producer may fill slot {@code pos & mask} only when
+ * its sequence equals {@code pos}, and the consumer may take it only when it equals
+ * {@code pos + 1}. Producers race with one CAS on the tail; {@link #offer(Object)} never blocks
+ * and simply returns false when the buffer is full.
+ */
+public final class BoundedRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /** Capacity is rounded up to a power of two. */
+    public BoundedRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    public boolean offer(E e) {
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(idx, e);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // full
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = slots.get(idx);
+                    slots.set(idx, null);
+                    sequences.set(idx, pos + mask + 1);
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null; // empty (or the producer of this slot has not published yet)
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /** Moves up to {@code max} elements into {@code out}; returns how many were moved. */
+    public int drainTo(List<? super E> out, int max) {
+        int n = 0;
+        for (E e; n < max && (e = poll()) != null; n++) out.add(e);
+        return n;
+    }
+
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head.get(), mask + 1L));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,162 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohitsurya2809.vaultedge.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a whole unit of work (one transaction) when it loses a race on an account row:
+ * optimistic version conflicts, deadlocks and lock wait timeouts, i.e. Spring's
+ * ConcurrencyFailureException family. Attempts are bounded by transactions.retry.max-attempts
+ * with exponential backoff (initial-backoff-ms doubling up to max-backoff-ms, the upper half
+ * of it jittered); when they run out the caller gets a 409.
+ *
+ * The work must be a complete transaction that rolls back on failure, so repeating it is safe
+ * and an idempotency row written inside it is never left behind. Called inside a transaction
+ * that is already running, it runs the work once and leaves the conflict to the outer caller.
+ *
+ * Conflicts are also counted per account (bounded by transactions.retry.tracked-accounts) for
+ * the contention actuator endpoint; micrometer only gets totals, accounts would be unbounded tags.
+ */
+@Component
+public class ConflictRetry {
+
+    private static final Logger log = LoggerFactory.getLogger(ConflictRetry.class);
+
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Cache<UUID, Stats> accounts;
+    private final Counter retried;
+    private final Counter exhausted;
+    private final DistributionSummary attemptsPerCall;
+
+    public ConflictRetry(MeterRegistry meterRegistry,
+                         @Value("${transactions.retry.max-attempts:4}") int maxAttempts,
+                         @Value("${transactions.retry.initial-backoff-ms:10}") long initialBackoffMs,
+                         @Value("${transactions.retry.max-backoff-ms:200}") long maxBackoffMs,
+                         @Value("${transactions.retry.tracked-accounts:10000}") long trackedAccounts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, trackedAccounts))
+                .build();
+        this.retried = Counter.builder("transactions.conflicts")
+                .description("Units of work that hit a concurrent update")
+                .tag("outcome", "retried")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("transactions.conflicts")
+                .description("Units of work that hit a concurrent update")
+                .tag("outcome", "exhausted")
+                .register(meterRegistry);
+        this.attemptsPerCall = DistributionSummary.builder("transactions.conflict.attempts")
+                .description("Attempts needed by units of work that hit at least one conflict")
+                .register(meterRegistry);
+    }
+
+    public <T> T run(Collection<UUID> accountIds, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) return work.get();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = work.get();
+                if (attempt > 1) attemptsPerCall.record(attempt);
+                return result;
+            } catch (ConcurrencyFailureException ex) {
+                boolean last = attempt >= maxAttempts;
+                record(accountIds, last);
+                if (last) {
+                    exhausted.increment();
+                    attemptsPerCall.record(attempt);
+                    log.warn("Giving up after {} conflicting attempts on accounts {}: {}", attempt, accountIds, ex.toString());
+                    throw new ConflictException("Account is busy with concurrent updates, please retry");
+                }
+                retried.increment();
+                pause(backoffMillis(attempt));
+            }
+        }
+    }
+
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        // keep half the delay so retries still spread out, jitter the rest so they do not collide again
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while retrying a conflicting update");
+        }
+    }
+
+    private void record(Collection<UUID> accountIds, boolean gaveUp) {
+        for (UUID id : accountIds) {
+            if (id == null) continue;
+            Stats s = accounts.get(id, k -> new Stats());
+            s.conflicts.increment();
+            if (gaveUp) s.exhausted.increment();
+            s.lastConflictAt = System.currentTimeMillis();
+        }
+    }
+
+    // ---------- Telemetry ----------
+
+    /**
+     * The {@code limit} accounts with the most conflicts since they started being tracked.
+     */
+    public List<Contention> topContended(int limit) {
+        List<Contention> out = new ArrayList<>();
+        accounts.asMap().forEach((id, s) -> out.add(new Contention(id, s.conflicts.sum(), s.exhausted.sum(),
+                Instant.ofEpochMilli(s.lastConflictAt))));
+        out.sort(Comparator.comparingLong(Contention::getConflicts).reversed());
+        return out.size() > limit ? new ArrayList<>(out.subList(0, Math.max(0, limit))) : out;
+    }
+
+    public void reset() {
+        accounts.invalidateAll();
+    }
+
+    private static final class Stats {
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+        volatile long lastConflictAt;
+    }
+
+    public static final class Contention {
+        private final UUID accountId;
+        private final long conflicts;
+        private final long exhausted;
+        private final Instant lastConflictAt;
+
+        Contention(UUID accountId, long conflicts, long exhausted, Instant lastConflictAt) {
+            this.accountId = accountId;
+            this.conflicts = conflicts;
+            this.exhausted = exhausted;
+            this.lastConflictAt = lastConflictAt;
+        }
+
+        public UUID getAccountId() { return accountId; }
+        public long getConflicts() { return conflicts; }
+        public long getExhausted() { return exhausted; }
+        public Instant getLastConflictAt() { return lastConflictAt; }
+    }
+}
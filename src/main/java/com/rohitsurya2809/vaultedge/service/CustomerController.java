@@ -5,21 +5,21 @@ import com.rohitsurya2809.vaultedge.dto.RegisterRequest;
 import com.rohitsurya2809.vaultedge.dto.CustomerResponse;
 import com.rohitsurya2809.vaultedge.model.Customer;
 import com.rohitsurya2809.vaultedge.service.CustomerService;
+import com.rohitsurya2809.vaultedge.dto.CustomerSliceResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @RestController
 @RequestMapping("/api/v1/customers")
 public class CustomerController {
 
     private final CustomerService service;
+    private final CustomerQueryService queryService;
 
-    public CustomerController(CustomerService service) {
+    public CustomerController(CustomerService service, CustomerQueryService queryService) {
         this.service = service;
+        this.queryService = queryService;
     }
 
     @PostMapping("/register")
@@ -34,11 +34,15 @@ public class CustomerController {
         return ResponseEntity.ok(MapOf(c));
     }
 
+    // newest first, keyset paged: pass nextCursor back as ?cursor= for the next slice
     @GetMapping
-    public ResponseEntity<?> list() {
-        List<Customer> customers = service.listAll();
-        var resp = customers.stream().map(this::toResp).collect(Collectors.toList());
-        return ResponseEntity.ok(resp);
+    public ResponseEntity<CustomerSliceResponse> list(
+            @RequestParam(value = "emailDomain", required = false) String emailDomain,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(queryService.search(emailDomain, fromIso, toIso, cursor, size));
     }
 
     @PutMapping("/{id}")
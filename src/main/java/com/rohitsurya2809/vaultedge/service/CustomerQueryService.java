@@ -0,0 +1,148 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.dto.CustomerResponse;
+import com.rohitsurya2809.vaultedge.dto.CustomerSliceResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import com.rohitsurya2809.vaultedge.repository.CustomerSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Customer listing, newest first, filtered by email domain and created date.
+ *
+ * Only the response columns are selected (no entities, so no per-row authUser load). Slices
+ * use keyset paging on (created_at, id) over the V12 indexes; the export scrolls the same
+ * query with a bounded fetch size and writes NDJSON as it reads.
+ */
+@Service
+public class CustomerQueryService {
+
+    private static final int MAX_SLICE_SIZE = 500;
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+
+    public CustomerQueryService(EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${export.fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    @Transactional(readOnly = true)
+    public CustomerSliceResponse search(String emailDomain, String fromIso, String toIso, String cursor, int size) {
+        int limit = Math.min(Math.max(1, size), MAX_SLICE_SIZE);
+        Specification<Customer> spec = CustomerSpecification.build(emailDomain, parseDate(fromIso), parseDate(toIso));
+        if (cursor != null && !cursor.isBlank()) {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            spec = spec.and(CustomerSpecification.before(after.getCreatedAt(), after.getId()));
+        }
+
+        List<Tuple> rows = entityManager.createQuery(query(spec))
+                .setMaxResults(limit + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) rows = rows.subList(0, limit);
+        String next = null;
+        if (hasNext) {
+            Tuple last = rows.get(rows.size() - 1);
+            next = new TransactionCursor(last.get(5, OffsetDateTime.class), last.get(0, UUID.class)).encode();
+        }
+
+        List<CustomerResponse> content = new ArrayList<>(rows.size());
+        for (Tuple t : rows) content.add(toResponse(t));
+        return CustomerSliceResponse.builder()
+                .content(content)
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(next)
+                .build();
+    }
+
+    /**
+     * Streams every matching customer as NDJSON, newest first, without holding the result in memory.
+     */
+    public void export(String emailDomain, String fromIso, String toIso, OutputStream out) {
+        Specification<Customer> spec = CustomerSpecification.build(emailDomain, parseDate(fromIso), parseDate(toIso));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        readOnlyTx.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            try (ScrollableResults<Tuple> rows = session.createQuery(query(spec))
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    writer.write(objectMapper.writeValueAsString(toResponse(rows.get())));
+                    writer.write('\n');
+                }
+                writer.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private CriteriaQuery<Tuple> query(Specification<Customer> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Customer> root = cq.from(Customer.class);
+        cq.multiselect(root.get("id"), root.get("fullName"), root.get("email"), root.get("phone"),
+                root.get("address"), root.get("createdAt"));
+        Predicate where = spec.toPredicate(root, cq, cb);
+        if (where != null) cq.where(where);
+        cq.orderBy(cb.desc(root.get("createdAt")), cb.desc(root.get("id")));
+        return cq;
+    }
+
+    private static CustomerResponse toResponse(Tuple t) {
+        return CustomerResponse.builder()
+                .id(t.get(0, UUID.class).toString())
+                .fullName(t.get(1, String.class))
+                .email(t.get(2, String.class))
+                .phone(t.get(3, String.class))
+                .address(t.get(4, String.class))
+                .build();
+    }
+
+    private static OffsetDateTime parseDate(String iso) {
+        if (iso == null || iso.isBlank()) return null;
+        try {
+            return OffsetDateTime.parse(iso);
+        } catch (DateTimeParseException ex) {
+            throw new BadRequestException("Invalid timestamp: " + iso);
+        }
+    }
+}
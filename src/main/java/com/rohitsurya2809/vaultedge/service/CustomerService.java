@@ -9,7 +9,6 @@ import com.rohitsurya2809.vaultedge.exception.NotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -46,10 +45,6 @@ public class CustomerService {
         return repo.findById(java.util.UUID.fromString(id)).orElseThrow(() -> new NotFoundException("Customer not found"));
     }
 
-    public List<Customer> listAll() {
-        return repo.findAll();
-    }
-
     public Customer update(String id, RegisterRequest req) {
         Customer c = getById(id);
         c.setFullName(req.getFullName());
@@ -0,0 +1,441 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.TransactionSeriesPoint;
+import com.rohitsurya2809.vaultedge.dto.TransactionSeriesResponse;
+import com.rohitsurya2809.vaultedge.dto.TransactionSummaryResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-account daily rollups (UTC days) in daily_account_rollups: count and amount per
+ * transaction type.
+ *
+ * A catch-up job folds each day into the table once it has settled (ended at least
+ * rollups.settle-minutes ago, so in-flight postings and the ledger engine's asynchronous flush
+ * have landed), records each active account's closing balance for that day in
+ * account_balance_checkpoints, and advances the daily_rollup_state watermark. Every write path
+ * (direct, group commit, batch, ledger engine) only inserts into transactions, so this one job
+ * covers all of them, and re-rolling a day is idempotent. Rows that land on a day the job has
+ * already rolled (a lagging ledger engine flush, journal recovery) queue that day in
+ * daily_rollup_dirty_days via {@link #markLate}, and the next run re-rolls it first.
+ *
+ * Summaries over [from, to] read whole rolled-up days from the rollups and only query raw rows
+ * for the partial days at either edge and for days after the watermark.
+ */
+@Service
+public class DailyRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyRollupService.class);
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+    private static final int MAX_SERIES_DAYS = 3660;
+    // a transactions row's effect on its account's balance; unqualified, so only for queries
+    // where transactions is the one table with type and amount columns
+    static final String SIGNED_AMOUNT =
+            "CASE WHEN UPPER(type) IN ('DEPOSIT', 'TRANSFER_IN') THEN amount "
+            + "WHEN UPPER(type) IN ('WITHDRAW', 'TRANSFER_OUT') THEN -amount ELSE 0 END";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate txTemplate;
+    private final boolean enabled;
+    private final long intervalSeconds;
+    private final long settleMinutes;
+    private final int maxDaysPerRun;
+
+    private ScheduledExecutorService scheduler;
+
+    public DailyRollupService(JdbcTemplate jdbc,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${rollups.enabled:true}") boolean enabled,
+                              @Value("${rollups.interval-seconds:300}") long intervalSeconds,
+                              @Value("${rollups.settle-minutes:10}") long settleMinutes,
+                              @Value("${rollups.max-days-per-run:31}") int maxDaysPerRun) {
+        this.jdbc = jdbc;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.intervalSeconds = Math.max(1, intervalSeconds);
+        this.settleMinutes = Math.max(0, settleMinutes);
+        this.maxDaysPerRun = Math.max(1, maxDaysPerRun);
+    }
+
+    // ---------- Catch-up job ----------
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "daily-rollups");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::catchUpQuietly, 30, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private void catchUpQuietly() {
+        try {
+            int days = catchUp();
+            if (days > 0) log.info("Rolled up {} day(s) of transactions, now through {}", days, rolledThrough());
+        } catch (RuntimeException ex) {
+            log.warn("Daily rollup run failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Re-rolls days queued by late rows, then rolls up settled days after the watermark, one
+     * transaction per day, at most rollups.max-days-per-run per call. Returns the number of days
+     * rolled.
+     */
+    public int catchUp() {
+        LocalDate lastSettled = LocalDate.ofInstant(Instant.now().minus(settleMinutes, ChronoUnit.MINUTES), ZoneOffset.UTC)
+                .minusDays(1);
+        int rolled = 0;
+        while (rolled < maxDaysPerRun) {
+            Boolean done = txTemplate.execute(status -> rerollNextDirtyDay());
+            if (!Boolean.TRUE.equals(done)) break;
+            rolled++;
+        }
+        while (rolled < maxDaysPerRun) {
+            Boolean done = txTemplate.execute(status -> rollNextDay(lastSettled));
+            if (!Boolean.TRUE.equals(done)) break;
+            rolled++;
+        }
+        return rolled;
+    }
+
+    // rolls the day after the watermark if it has settled; the state row lock serializes concurrent runs
+    private boolean rollNextDay(LocalDate lastSettled) {
+        LocalDate through = jdbc.query("SELECT rolled_through FROM daily_rollup_state WHERE id = 1 FOR UPDATE",
+                rs -> rs.next() ? rs.getObject(1, LocalDate.class) : null);
+        LocalDate day;
+        if (through != null) {
+            day = through.plusDays(1);
+        } else {
+            Timestamp first = jdbc.queryForObject("SELECT MIN(created_at) FROM transactions", Timestamp.class);
+            if (first == null) return false;
+            day = LocalDate.ofInstant(first.toInstant(), ZoneOffset.UTC);
+        }
+        if (day.isAfter(lastSettled)) return false;
+
+        rollDay(day);
+        jdbc.update("UPDATE daily_rollup_state SET rolled_through = ? WHERE id = 1", day);
+        return true;
+    }
+
+    // re-rolls the earliest queued day; takes the state row lock first, like rollNextDay
+    private boolean rerollNextDirtyDay() {
+        jdbc.query("SELECT rolled_through FROM daily_rollup_state WHERE id = 1 FOR UPDATE", rs -> {});
+        LocalDate day = jdbc.query("SELECT day FROM daily_rollup_dirty_days ORDER BY day LIMIT 1 FOR UPDATE",
+                rs -> rs.next() ? rs.getObject(1, LocalDate.class) : null);
+        if (day == null) return false;
+
+        Map<UUID, BigDecimal> before = closingBalances(day);
+        rollDay(day);
+        shiftLaterCheckpoints(day, before);
+        jdbc.update("DELETE FROM daily_rollup_dirty_days WHERE day = ?", day);
+        return true;
+    }
+
+    private void rollDay(LocalDate day) {
+        jdbc.update("DELETE FROM daily_account_rollups WHERE day = ?", day);
+        jdbc.update("INSERT INTO daily_account_rollups (account_id, day, type, tx_count, total_amount) "
+                        + "SELECT account_id, ?, UPPER(type), COUNT(*), SUM(amount) FROM transactions "
+                        + "WHERE created_at >= ? AND created_at < ? GROUP BY account_id, UPPER(type)",
+                day, Timestamp.from(start(day).toInstant()), Timestamp.from(start(day.plusDays(1)).toInstant()));
+        // closing balance of every account that posted that day (balance_after of its last row);
+        // checkpoints of accounts without postings that day are seeds (BalanceStripes) and stay
+        jdbc.update("DELETE FROM account_balance_checkpoints WHERE day = ? AND account_id IN ("
+                        + "SELECT account_id FROM transactions WHERE created_at >= ? AND created_at < ?)",
+                day, Timestamp.from(start(day).toInstant()), Timestamp.from(start(day.plusDays(1)).toInstant()));
+        jdbc.update("INSERT INTO account_balance_checkpoints (account_id, day, closing_balance) "
+                        + "SELECT account_id, ?, balance_after FROM ("
+                        + "SELECT account_id, balance_after, "
+                        + "ROW_NUMBER() OVER (PARTITION BY account_id ORDER BY created_at DESC, seq DESC) AS rn "
+                        + "FROM transactions WHERE created_at >= ? AND created_at < ?) last_rows "
+                        + "WHERE rn = 1 AND balance_after IS NOT NULL",
+                day, Timestamp.from(start(day).toInstant()), Timestamp.from(start(day.plusDays(1)).toInstant()));
+        // striped accounts record no balance_after: their previous checkpoint plus the day's net flow
+        jdbc.update("INSERT INTO account_balance_checkpoints (account_id, day, closing_balance) "
+                        + "SELECT t.account_id, ?, prev.closing_balance + SUM(" + SIGNED_AMOUNT + ") FROM transactions t "
+                        + "JOIN account_balance_checkpoints prev ON prev.account_id = t.account_id AND prev.day = ("
+                        + "SELECT MAX(p.day) FROM account_balance_checkpoints p WHERE p.account_id = t.account_id AND p.day < ?) "
+                        + "WHERE t.created_at >= ? AND t.created_at < ? AND NOT EXISTS ("
+                        + "SELECT 1 FROM account_balance_checkpoints c WHERE c.account_id = t.account_id AND c.day = ?) "
+                        + "GROUP BY t.account_id, prev.closing_balance",
+                day, day, Timestamp.from(start(day).toInstant()), Timestamp.from(start(day.plusDays(1)).toInstant()), day);
+    }
+
+    private Map<UUID, BigDecimal> closingBalances(LocalDate day) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        jdbc.query("SELECT account_id, closing_balance FROM account_balance_checkpoints WHERE day = ?", rs -> {
+            balances.put(UUIDS.convertToEntityAttribute(rs.getBytes(1)), rs.getBigDecimal(2));
+        }, day);
+        return balances;
+    }
+
+    /*
+     * Striped accounts' checkpoints are chained (previous checkpoint plus the day's net flow), so a
+     * re-rolled day that changed an account's closing balance moves every later checkpoint built on
+     * it, up to the first later day that recorded a balance_after and so stands on its own.
+     */
+    private void shiftLaterCheckpoints(LocalDate day, Map<UUID, BigDecimal> before) {
+        for (Map.Entry<UUID, BigDecimal> e : closingBalances(day).entrySet()) {
+            byte[] id = UUIDS.convertToDatabaseColumn(e.getKey());
+            BigDecimal old = before.get(e.getKey());
+            if (old == null) {
+                // no checkpoint that day before: later ones were chained on the one before it
+                old = jdbc.query("SELECT closing_balance FROM account_balance_checkpoints "
+                                + "WHERE account_id = ? AND day < ? ORDER BY day DESC LIMIT 1",
+                        rs -> rs.next() ? rs.getBigDecimal(1) : null, id, day);
+                if (old == null) continue;
+            }
+            BigDecimal delta = e.getValue().subtract(old);
+            if (delta.signum() == 0) continue;
+            Timestamp anchored = jdbc.queryForObject("SELECT MIN(created_at) FROM transactions "
+                            + "WHERE account_id = ? AND created_at >= ? AND balance_after IS NOT NULL",
+                    Timestamp.class, id, Timestamp.from(start(day.plusDays(1)).toInstant()));
+            LocalDate until = anchored != null ? LocalDate.ofInstant(anchored.toInstant(), ZoneOffset.UTC) : LocalDate.MAX;
+            jdbc.update("UPDATE account_balance_checkpoints SET closing_balance = closing_balance + ? "
+                    + "WHERE account_id = ? AND day > ? AND day < ?", delta, id, day, until);
+        }
+    }
+
+    /**
+     * Queues the already rolled-up UTC days among createdAts for re-rolling. Called by writers in
+     * the transaction that inserts the rows: the locking read of the state row orders it against
+     * the job's FOR UPDATE, so a late row is either seen by that day's roll or queued. Rows from
+     * the current UTC day skip the query, since the watermark always trails it.
+     */
+    static void markLate(JdbcTemplate jdbc, Collection<Timestamp> createdAts) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        SortedSet<LocalDate> days = new TreeSet<>();
+        for (Timestamp ts : createdAts) {
+            LocalDate day = LocalDate.ofInstant(ts.toInstant(), ZoneOffset.UTC);
+            if (day.isBefore(today)) days.add(day);
+        }
+        for (LocalDate day : days) {
+            jdbc.update("INSERT IGNORE INTO daily_rollup_dirty_days (day) "
+                    + "SELECT ? FROM daily_rollup_state WHERE id = 1 AND rolled_through >= ? FOR SHARE", day, day);
+        }
+    }
+
+    public LocalDate rolledThrough() {
+        return jdbc.query("SELECT rolled_through FROM daily_rollup_state WHERE id = 1",
+                rs -> rs.next() ? rs.getObject(1, LocalDate.class) : null);
+    }
+
+    // ---------- Summary ----------
+
+    /**
+     * Summary over [from, to] (both inclusive, either may be null): rolled-up whole days plus
+     * raw edge queries for the partial first/last day and anything after the watermark.
+     */
+    public TransactionSummaryResponse summarize(UUID accountId, OffsetDateTime from, OffsetDateTime to) {
+        Instant fromAt = from != null ? from.toInstant() : null;
+        Instant toAt = to != null ? to.toInstant() : null;
+        Map<String, Totals> byType = new HashMap<>();
+
+        // whole days inside [from, to] that are already rolled up
+        LocalDate firstDay = null;
+        if (fromAt != null) {
+            LocalDate d = LocalDate.ofInstant(fromAt, ZoneOffset.UTC);
+            firstDay = start(d).toInstant().equals(fromAt) ? d : d.plusDays(1);
+        }
+        LocalDate lastDay = rolledThrough();
+        if (toAt != null && lastDay != null) {
+            LocalDate beforeTo = LocalDate.ofInstant(toAt, ZoneOffset.UTC).minusDays(1);
+            if (beforeTo.isBefore(lastDay)) lastDay = beforeTo;
+        }
+
+        if (lastDay == null || (firstDay != null && firstDay.isAfter(lastDay))) {
+            rawTotals(accountId, fromAt, toAt, byType);
+        } else {
+            rolledTotals(accountId, firstDay, lastDay, byType);
+            if (firstDay != null) rawTotals(accountId, fromAt, start(firstDay).toInstant(), false, byType);
+            rawTotals(accountId, start(lastDay.plusDays(1)).toInstant(), toAt, byType);
+        }
+
+        BigDecimal totalDeposits = BigDecimal.ZERO;
+        BigDecimal totalWithdrawals = BigDecimal.ZERO;
+        Map<String, Long> counts = new HashMap<>();
+        long count = 0;
+        for (Map.Entry<String, Totals> e : byType.entrySet()) {
+            Totals t = e.getValue();
+            counts.put(e.getKey(), t.count);
+            count += t.count;
+            if (isCredit(e.getKey())) totalDeposits = totalDeposits.add(t.amount);
+            else if (isDebit(e.getKey())) totalWithdrawals = totalWithdrawals.add(t.amount);
+        }
+        return new TransactionSummaryResponse(accountId, totalDeposits, totalWithdrawals,
+                totalDeposits.subtract(totalWithdrawals), count, counts);
+    }
+
+    // ---------- Series ----------
+
+    public enum Granularity { DAILY, WEEKLY, MONTHLY }
+
+    /**
+     * Deposit/withdrawal totals per day, ISO week (Monday start) or month over the UTC days
+     * [from, to]. Rolled-up days come from the rollups; later days are aggregated from raw rows.
+     */
+    public TransactionSeriesResponse series(UUID accountId, String granularityParam, LocalDate from, LocalDate to) {
+        Granularity granularity;
+        try {
+            granularity = Granularity.valueOf((granularityParam == null ? "DAILY" : granularityParam).trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("granularity must be one of daily, weekly, monthly");
+        }
+        if (to == null) to = LocalDate.now(ZoneOffset.UTC);
+        if (from == null) from = to.minusDays(29);
+        if (from.isAfter(to)) throw new BadRequestException("from must not be after to");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_SERIES_DAYS) {
+            throw new BadRequestException("Range too large, at most " + MAX_SERIES_DAYS + " days");
+        }
+
+        TreeMap<LocalDate, TransactionSeriesPoint> points = new TreeMap<>();
+        LocalDate through = rolledThrough();
+        if (through != null && !from.isAfter(through)) {
+            LocalDate end = to.isBefore(through) ? to : through;
+            jdbc.query("SELECT day, type, tx_count, total_amount FROM daily_account_rollups "
+                            + "WHERE account_id = ? AND day >= ? AND day <= ?",
+                    rs -> {
+                        add(points, bucket(rs.getObject(1, LocalDate.class), granularity),
+                                rs.getString(2), rs.getLong(3), rs.getBigDecimal(4));
+                    },
+                    UUIDS.convertToDatabaseColumn(accountId), from, end);
+        }
+        LocalDate rawFrom = through != null && through.isAfter(from.minusDays(1)) ? through.plusDays(1) : from;
+        if (!rawFrom.isAfter(to)) {
+            // UNIX_TIMESTAMP of a TIMESTAMP column is session time zone independent, so these are UTC days
+            jdbc.query("SELECT FLOOR(UNIX_TIMESTAMP(created_at) / 86400), UPPER(type), COUNT(*), SUM(amount) "
+                            + "FROM transactions WHERE account_id = ? AND created_at >= ? AND created_at < ? "
+                            + "GROUP BY 1, 2",
+                    rs -> {
+                        add(points, bucket(LocalDate.ofEpochDay(rs.getLong(1)), granularity),
+                                rs.getString(2), rs.getLong(3), rs.getBigDecimal(4));
+                    },
+                    UUIDS.convertToDatabaseColumn(accountId),
+                    Timestamp.from(start(rawFrom).toInstant()), Timestamp.from(start(to.plusDays(1)).toInstant()));
+        }
+
+        return TransactionSeriesResponse.builder()
+                .accountId(accountId)
+                .granularity(granularity.name())
+                .from(from)
+                .to(to)
+                .points(new ArrayList<>(points.values()))
+                .build();
+    }
+
+    private static LocalDate bucket(LocalDate day, Granularity granularity) {
+        return switch (granularity) {
+            case DAILY -> day;
+            case WEEKLY -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static void add(Map<LocalDate, TransactionSeriesPoint> points, LocalDate period,
+                            String type, long count, BigDecimal amount) {
+        TransactionSeriesPoint p = points.computeIfAbsent(period, k -> TransactionSeriesPoint.builder()
+                .periodStart(k)
+                .totalDeposits(BigDecimal.ZERO)
+                .totalWithdrawals(BigDecimal.ZERO)
+                .netFlow(BigDecimal.ZERO)
+                .build());
+        p.setCount(p.getCount() + count);
+        if (isCredit(type)) {
+            p.setTotalDeposits(p.getTotalDeposits().add(amount));
+            p.setNetFlow(p.getNetFlow().add(amount));
+        } else if (isDebit(type)) {
+            p.setTotalWithdrawals(p.getTotalWithdrawals().add(amount));
+            p.setNetFlow(p.getNetFlow().subtract(amount));
+        }
+    }
+
+    // ---------- Queries ----------
+
+    private void rolledTotals(UUID accountId, LocalDate firstDay, LocalDate lastDay, Map<String, Totals> into) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT type, SUM(tx_count), SUM(total_amount) FROM daily_account_rollups WHERE account_id = ?");
+        args.add(UUIDS.convertToDatabaseColumn(accountId));
+        if (firstDay != null) {
+            sql.append(" AND day >= ?");
+            args.add(firstDay);
+        }
+        sql.append(" AND day <= ? GROUP BY type");
+        args.add(lastDay);
+        jdbc.query(sql.toString(), rs -> {
+            merge(into, rs.getString(1), rs.getLong(2), rs.getBigDecimal(3));
+        }, args.toArray());
+    }
+
+    // raw rows in [from, to] (to inclusive, matching the summary API); null bounds are open
+    private void rawTotals(UUID accountId, Instant from, Instant to, Map<String, Totals> into) {
+        rawTotals(accountId, from, to, true, into);
+    }
+
+    private void rawTotals(UUID accountId, Instant from, Instant to, boolean toInclusive, Map<String, Totals> into) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT UPPER(type), COUNT(*), SUM(amount) FROM transactions "
+                + "WHERE account_id = ? AND created_at IS NOT NULL");
+        args.add(UUIDS.convertToDatabaseColumn(accountId));
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(toInclusive ? " AND created_at <= ?" : " AND created_at < ?");
+            args.add(Timestamp.from(to));
+        }
+        sql.append(" GROUP BY UPPER(type)");
+        jdbc.query(sql.toString(), rs -> {
+            merge(into, rs.getString(1), rs.getLong(2), rs.getBigDecimal(3));
+        }, args.toArray());
+    }
+
+    private static void merge(Map<String, Totals> into, String type, long count, BigDecimal amount) {
+        Totals t = into.computeIfAbsent(type != null ? type : "UNKNOWN", k -> new Totals());
+        t.count += count;
+        if (amount != null) t.amount = t.amount.add(amount);
+    }
+
+    private static OffsetDateTime start(LocalDate day) {
+        return day.atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    private static boolean isCredit(String type) {
+        return "DEPOSIT".equals(type) || "TRANSFER_IN".equals(type);
+    }
+
+    private static boolean isDebit(String type) {
+        return "WITHDRAW".equals(type) || "TRANSFER_OUT".equals(type);
+    }
+
+    private static final class Totals {
+        long count;
+        BigDecimal amount = BigDecimal.ZERO;
+    }
+}
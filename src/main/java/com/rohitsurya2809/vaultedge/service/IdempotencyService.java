@@ -1,38 +1,370 @@
 package com.rohitsurya2809.vaultedge.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohitsurya2809.vaultedge.exception.ConflictException;
 import com.rohitsurya2809.vaultedge.model.IdempotencyKey;
 import com.rohitsurya2809.vaultedge.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
 
+/**
+ * Stored responses for Idempotency-Key replays.
+ *
+ * Keys are scoped to the calling customer and stored as fixed-width SHA-256 hex digests (see
+ * {@link #scope(UUID, String)}). Responses are kept as serialized JSON both in the table and in
+ * a bounded local cache (size- and TTL-evicting), so a replay served through
+ * {@link #getSerialized(String)} is a cache lookup plus a byte copy. Rows older than
+ * idempotency.ttl-hours are ignored on read and deleted in small batches by a background sweeper.
+ *
+ * Concurrent requests with the same key are single-flighted by {@link #claim(String)}: the first
+ * one reserves the key (an in-process future plus an IN_PROGRESS row visible to other nodes) and
+ * runs; duplicates wait up to idempotency.wait-ms for its outcome instead of posting again.
+ * Work that posts many keyed items in one transaction reserves each key in that transaction
+ * instead, with {@link #reserve(String, Class)}.
+ */
 @Service
 public class IdempotencyService {
 
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
     private final IdempotencyKeyRepository repo;
     private final ObjectMapper mapper;
+    private final JdbcTemplate jdbc;
+    private final Duration ttl;
+    private final long sweepIntervalSeconds;
+    private final int sweepBatchSize;
+    private final Cache<String, byte[]> cache;
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final TransactionTemplate reservationTx;
+    private final long waitMillis;
+    private final Duration lease;
+
+    private ScheduledExecutorService sweeper;
 
-    public IdempotencyService(IdempotencyKeyRepository repo, ObjectMapper mapper) {
+    public IdempotencyService(IdempotencyKeyRepository repo,
+                              ObjectMapper mapper,
+                              JdbcTemplate jdbc,
+                              MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.cache.max-entries:100000}") long maxEntries,
+                              @Value("${idempotency.sweep.interval-seconds:60}") long sweepIntervalSeconds,
+                              @Value("${idempotency.sweep.batch-size:1000}") int sweepBatchSize,
+                              @Value("${idempotency.wait-ms:10000}") long waitMillis,
+                              @Value("${idempotency.lease-seconds:60}") long leaseSeconds) {
         this.repo = repo;
         this.mapper = mapper;
+        this.jdbc = jdbc;
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+        this.sweepIntervalSeconds = Math.max(1, sweepIntervalSeconds);
+        this.sweepBatchSize = Math.max(1, sweepBatchSize);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxEntries))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+
+        // reservations must be visible to other requests right away, whatever the caller's transaction
+        this.reservationTx = new TransactionTemplate(transactionManager);
+        this.reservationTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.waitMillis = Math.max(0, waitMillis);
+        this.lease = Duration.ofSeconds(Math.max(1, leaseSeconds));
     }
 
-    public <T> T getIfExists(String key, Class<T> clazz) {
+    /**
+     * Storage key for a client-supplied Idempotency-Key: SHA-256 over the customer id and the key,
+     * hex encoded (64 chars). Null when no key was supplied.
+     */
+    public String scope(UUID customerId, String key) {
+        if (key == null || key.isBlank()) return null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(String.valueOf(customerId).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) ':');
+            md.update(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The stored response as UTF-8 JSON, or null. Callers may write it to the client as is.
+     */
+    public byte[] getSerialized(String key) {
+        if (key == null) return null;
+        byte[] cached = cache.getIfPresent(key);
+        if (cached != null) return cached;
+
         Optional<IdempotencyKey> opt = repo.findById(key);
-        if (opt.isEmpty()) return null;
+        if (opt.isEmpty() || isExpired(opt.get()) || opt.get().getResponseJson() == null) return null;
+        byte[] json = opt.get().getResponseJson().getBytes(StandardCharsets.UTF_8);
+        cache.put(key, json);
+        return json;
+    }
+
+    public <T> T getIfExists(String key, Class<T> clazz) {
+        byte[] json = getSerialized(key);
+        if (json == null) return null;
 
         try {
-            return mapper.readValue(opt.get().getResponseJson(), clazz);
+            return mapper.readValue(json, clazz);
         } catch (Exception e) {
             return null;
         }
     }
 
+    /**
+     * Stores the response and marks the key COMPLETED. Joins the caller's transaction, so on the
+     * direct posting path the response commits (or rolls back) together with the posting; a
+     * failure here is thrown so that transaction rolls back too.
+     */
     public <T> void save(String key, T responseObj) {
+        byte[] json;
         try {
-            String json = mapper.writeValueAsString(responseObj);
-            repo.save(new IdempotencyKey(key, json));
-        } catch (Exception ignored) {}
+            json = mapper.writeValueAsBytes(responseObj);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Idempotent response is not serializable", ex);
+        }
+        jdbc.update("INSERT INTO idempotency_keys (id, status, response_json, created_at) VALUES (?, 'COMPLETED', ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE status = 'COMPLETED', response_json = VALUES(response_json)",
+                key, new String(json, StandardCharsets.UTF_8), Timestamp.from(Instant.now()));
+        cacheAfterCommit(key, json);
+    }
+
+    // ---------- Single flight ----------
+
+    /**
+     * Claims the key for this request, or returns the outcome of whoever already holds it. The
+     * holder must end the claim with {@link Claim#succeeded(Object)}, {@link Claim#failed(RuntimeException)}
+     * or, when the outcome is unknown, {@link Claim#inDoubt(RuntimeException)}.
+     * Throws {@link ConflictException} if the holder does not finish within idempotency.wait-ms.
+     */
+    public Claim claim(String key) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        while (true) {
+            byte[] done = getSerialized(key);
+            if (done != null) return new Claim(key, null, done);
+
+            CompletableFuture<byte[]> mine = new CompletableFuture<>();
+            CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) return new Claim(key, null, await(running, deadline));
+
+            boolean reserved;
+            try {
+                reserved = Boolean.TRUE.equals(reservationTx.execute(status -> reserveRow(key)));
+            } catch (RuntimeException ex) {
+                inFlight.remove(key, mine);
+                throw ex;
+            }
+            if (reserved) return new Claim(key, mine, null);
+
+            // held by another node (or completed just now): poll the row until it settles
+            inFlight.remove(key, mine);
+            if (System.nanoTime() - deadline > 0) {
+                throw new ConflictException("A request with this Idempotency-Key is still in progress");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("Interrupted while waiting for a request with the same Idempotency-Key");
+            }
+        }
+    }
+
+    /**
+     * Reserves the key in the caller's transaction, so the reservation commits or rolls back with
+     * the posting. Returns null when the key is now this transaction's (store the response with
+     * {@link #save(String, Object)} before committing), or the stored response if the key is
+     * already completed. Throws {@link ConflictException} while another request holds the key; a
+     * reservation not yet committed by another transaction blocks here until it ends.
+     */
+    public <T> T reserve(String key, Class<T> type) {
+        int n = jdbc.update("INSERT IGNORE INTO idempotency_keys (id, status, created_at) VALUES (?, 'IN_PROGRESS', ?)",
+                key, Timestamp.from(Instant.now()));
+        if (n == 1) return null;
+        // a locking read sees the holder's committed row, whatever snapshot this transaction already has
+        List<String> stored = jdbc.query("SELECT response_json FROM idempotency_keys WHERE id = ? FOR UPDATE",
+                (rs, i) -> rs.getString(1), key);
+        if (stored.isEmpty() || stored.get(0) == null) {
+            throw new ConflictException("A request with this Idempotency-Key is still in progress");
+        }
+        try {
+            return mapper.readValue(stored.get(0), type);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", ex);
+        }
+    }
+
+    private boolean reserveRow(String key) {
+        Timestamp now = Timestamp.from(Instant.now());
+        int n = jdbc.update("INSERT IGNORE INTO idempotency_keys (id, status, created_at) VALUES (?, 'IN_PROGRESS', ?)", key, now);
+        if (n == 1) return true;
+        // take over a reservation whose holder died without finishing or releasing it
+        return jdbc.update("UPDATE idempotency_keys SET created_at = ? WHERE id = ? AND status = 'IN_PROGRESS' AND created_at < ?",
+                now, key, Timestamp.from(Instant.now().minus(lease))) == 1;
+    }
+
+    private byte[] await(CompletableFuture<byte[]> running, long deadline) {
+        try {
+            return running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            // duplicates see the same business outcome as the original request
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Idempotent request failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ConflictException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for a request with the same Idempotency-Key");
+        }
+    }
+
+    /**
+     * Outcome of {@link #claim(String)}: either a stored/in-flight response to replay, or
+     * ownership of the key.
+     */
+    public final class Claim {
+        private final String key;
+        private final CompletableFuture<byte[]> future;
+        private final byte[] replay;
+
+        private Claim(String key, CompletableFuture<byte[]> future, byte[] replay) {
+            this.key = key;
+            this.future = future;
+            this.replay = replay;
+        }
+
+        public boolean isReplay() {
+            return replay != null;
+        }
+
+        public <T> T replay(Class<T> type) {
+            try {
+                return mapper.readValue(replay, type);
+            } catch (java.io.IOException ex) {
+                throw new IllegalStateException("Stored idempotent response is unreadable", ex);
+            }
+        }
+
+        // the response is already stored by save(); hand it to the waiting duplicates
+        public void succeeded(Object response) {
+            try {
+                future.complete(mapper.writeValueAsBytes(response));
+            } catch (Exception ex) {
+                future.completeExceptionally(ex);
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+
+        // the posting may or may not have been applied: keep the row IN_PROGRESS so a retry
+        // waits (or, after the lease, takes over) instead of posting again right away
+        public void inDoubt(RuntimeException cause) {
+            future.completeExceptionally(cause);
+            inFlight.remove(key, future);
+        }
+
+        // nothing was stored; free the key so a later retry runs again
+        public void failed(RuntimeException cause) {
+            try {
+                reservationTx.executeWithoutResult(status ->
+                        jdbc.update("DELETE FROM idempotency_keys WHERE id = ? AND status = 'IN_PROGRESS'", key));
+            } catch (RuntimeException ex) {
+                log.warn("Could not release idempotency key reservation: {}", ex.toString());
+            } finally {
+                future.completeExceptionally(cause);
+                inFlight.remove(key, future);
+            }
+        }
+    }
+
+    // a rolled-back posting must not leave a replayable response behind
+    private void cacheAfterCommit(String key, byte[] json) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.put(key, json);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(key, json);
+            }
+        });
+    }
+
+    private boolean isExpired(IdempotencyKey k) {
+        return k.getCreatedAt() != null && k.getCreatedAt().isBefore(OffsetDateTime.now().minus(ttl));
+    }
+
+    // ---------- Expiry sweeper ----------
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    private void sweepQuietly() {
+        try {
+            int deleted = sweep();
+            if (deleted > 0) log.debug("Deleted {} expired idempotency keys", deleted);
+        } catch (RuntimeException ex) {
+            log.warn("Idempotency key sweep failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Deletes expired rows in batches of idempotency.sweep.batch-size, each its own short
+     * statement so the sweep never holds many row locks at once.
+     */
+    public int sweep() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(ttl));
+        int total = 0;
+        int n;
+        do {
+            n = jdbc.update("DELETE FROM idempotency_keys WHERE created_at < ? LIMIT " + sweepBatchSize, cutoff);
+            total += n;
+        } while (n == sweepBatchSize && !Thread.currentThread().isInterrupted());
+        return total;
     }
 }
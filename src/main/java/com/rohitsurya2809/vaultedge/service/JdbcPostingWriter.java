@@ -0,0 +1,297 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import com.rohitsurya2809.vaultedge.model.AuditLog;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Plain-JDBC posting writer shared by every database write path (direct postings, group commit,
+ * batch API).
+ *
+ * Balance legs are applied immediately with guarded UPDATEs in {@link TransactionService#LOCK_ORDER};
+ * the transactions and audit_logs rows are collected in a {@link Rows} buffer and written with
+ * one JDBC batch each by {@link #flush(Rows)}. Callers own the surrounding transaction.
+ * Transactions that apply many postings lock all their accounts up front with
+ * {@link #lockAccounts(Collection)}, so they cannot deadlock with each other.
+ */
+@Service
+public class JdbcPostingWriter {
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+    // stays well below MySQL's placeholder limit
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final JdbcTemplate jdbc;
+    private final AuditService auditService;
+    private final BalanceStripes balanceStripes;
+
+    public JdbcPostingWriter(JdbcTemplate jdbc, AuditService auditService, BalanceStripes balanceStripes) {
+        this.jdbc = jdbc;
+        this.auditService = auditService;
+        this.balanceStripes = balanceStripes;
+    }
+
+    /**
+     * Applies the balance legs of a posting and buffers its transactions and audit rows. Throws
+     * {@link NotFoundException} or {@link BadRequestException} on business failures; a transfer
+     * may already have applied its first leg by then, so callers that go on with the transaction
+     * run it through {@link #atomically(Rows, Supplier)}.
+     */
+    public PostingResult apply(Posting p, Rows rows) {
+        PostingResult result = post(p, rows);
+        TransactionResponse resp = result.getResponse();
+        rows.audit(auditService.toAuditLogEntry(TransactionService.auditAction(p), result.getOwnerId(), resp.getId(),
+                null, TransactionService.auditDetails(p, resp)));
+        return result;
+    }
+
+    /**
+     * Like {@link #apply(Posting, Rows)}, but leaves the audit row to the caller.
+     */
+    public PostingResult post(Posting p, Rows rows) {
+        PostingResult result;
+        switch (p.getType()) {
+            case DEPOSIT -> {
+                Object[] acc = credit(p.getAccountId(), p.getAmount(), "Account not found: ");
+                TransactionResponse resp = rows.transaction(p.getAccountId(), "DEPOSIT", p.getAmount(), (BigDecimal) acc[0], null);
+                result = new PostingResult(resp, (UUID) acc[1]);
+            }
+            case WITHDRAW -> {
+                Object[] acc = debit(p.getAccountId(), p.getAmount(), "Account not found: ", "Insufficient balance");
+                TransactionResponse resp = rows.transaction(p.getAccountId(), "WITHDRAW", p.getAmount(), (BigDecimal) acc[0], null);
+                result = new PostingResult(resp, (UUID) acc[1]);
+            }
+            default -> {
+                UUID fromId = p.getAccountId();
+                UUID toId = p.getCounterpartyId();
+                Object[] from;
+                Object[] to;
+                if (TransactionService.LOCK_ORDER.compare(fromId, toId) < 0) {
+                    from = debit(fromId, p.getAmount(), "Source account not found: ", "Insufficient balance in source account");
+                    to = credit(toId, p.getAmount(), "Destination account not found: ");
+                } else {
+                    to = credit(toId, p.getAmount(), "Destination account not found: ");
+                    from = debit(fromId, p.getAmount(), "Source account not found: ", "Insufficient balance in source account");
+                }
+                TransactionResponse out = rows.transaction(fromId, "TRANSFER_OUT", p.getAmount(), (BigDecimal) from[0], p.getReferenceId());
+                rows.transaction(toId, "TRANSFER_IN", p.getAmount(), (BigDecimal) to[0], p.getReferenceId());
+                result = new PostingResult(out, (UUID) from[1]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs {@code work} so that a business failure ({@link NotFoundException},
+     * {@link BadRequestException}) undoes all of its writes and buffered rows, and rethrows it; the
+     * surrounding transaction goes on. The savepoint is set on the transaction's JDBC connection:
+     * JpaTransactionManager's TransactionStatus cannot create savepoints (HibernateJpaDialect).
+     */
+    public <T> T atomically(Rows rows, Supplier<T> work) {
+        int[] mark = rows.mark();
+        Savepoint savepoint = jdbc.execute((ConnectionCallback<Savepoint>) con -> con.setSavepoint());
+        try {
+            T result = work.get();
+            jdbc.execute((ConnectionCallback<Void>) con -> {
+                con.releaseSavepoint(savepoint);
+                return null;
+            });
+            return result;
+        } catch (NotFoundException | BadRequestException ex) {
+            jdbc.execute((ConnectionCallback<Void>) con -> {
+                con.rollback(savepoint);
+                return null;
+            });
+            rows.rollbackTo(mark);
+            throw ex;
+        }
+    }
+
+    /**
+     * Locks the rows of every given account in {@link TransactionService#LOCK_ORDER}, a striped
+     * account's stripes right before its row (the order {@link BalanceStripes} uses). Postings
+     * applied afterwards, in whatever order, only touch rows this transaction already holds.
+     */
+    public void lockAccounts(Collection<UUID> accountIds) {
+        List<UUID> ids = new ArrayList<>(new HashSet<>(accountIds));
+        if (ids.isEmpty()) return;
+        ids.sort(TransactionService.LOCK_ORDER);
+        Set<UUID> striped = balanceStripes.stripedAmong(ids);
+
+        List<UUID> run = new ArrayList<>();
+        for (UUID id : ids) {
+            if (!striped.contains(id)) {
+                run.add(id);
+                if (run.size() >= MAX_IDS_PER_QUERY) lockRows(run);
+                continue;
+            }
+            lockRows(run);
+            balanceStripes.lock(id);
+        }
+        lockRows(run);
+    }
+
+    // one range read over the primary key, which InnoDB locks in key order
+    private void lockRows(List<UUID> run) {
+        if (run.isEmpty()) return;
+        Object[] args = new Object[run.size()];
+        for (int i = 0; i < args.length; i++) args[i] = UUIDS.convertToDatabaseColumn(run.get(i));
+        String in = String.join(",", Collections.nCopies(args.length, "?"));
+        jdbc.query("SELECT id FROM accounts WHERE id IN (" + in + ") ORDER BY id FOR UPDATE", rs -> {}, args);
+        run.clear();
+    }
+
+    static List<UUID> accountsOf(Collection<Posting> postings) {
+        List<UUID> ids = new ArrayList<>(postings.size() * 2);
+        for (Posting p : postings) ids.addAll(TransactionService.accountsOf(p));
+        return ids;
+    }
+
+    /**
+     * Writes the buffered rows with one JDBC batch per table and clears the buffer.
+     */
+    public void flush(Rows rows) {
+        if (!rows.transactions.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO transactions (id, account_id, type, amount, balance_after, reference_id, status, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows.transactions);
+            List<Timestamp> createdAts = new ArrayList<>(rows.transactions.size());
+            for (Object[] row : rows.transactions) createdAts.add((Timestamp) row[7]);
+            DailyRollupService.markLate(jdbc, createdAts);
+        }
+        if (!rows.audits.isEmpty()) {
+            if (auditService.storesInDatabase()) {
+                List<Object[]> audits = new ArrayList<>(rows.audits.size());
+                for (AuditLog e : rows.audits) audits.add(Rows.auditRow(e));
+                jdbc.batchUpdate("INSERT INTO audit_logs (id, action, user_id, entity_id, ip_address, details, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", audits);
+            } else {
+                auditService.record(new ArrayList<>(rows.audits));
+            }
+        }
+        rows.clear();
+    }
+
+    private Object[] credit(UUID accountId, BigDecimal amount, String notFoundMessage) {
+        BalanceStripes.PostingLeg striped = balanceStripes.credit(accountId, amount);
+        if (striped != null) return leg(striped);
+        int n = jdbc.update("UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE id = ?",
+                amount, UUIDS.convertToDatabaseColumn(accountId));
+        if (n == 0) throw new NotFoundException(notFoundMessage + accountId);
+        return readBack(accountId);
+    }
+
+    private Object[] debit(UUID accountId, BigDecimal amount, String notFoundMessage, String insufficientMessage) {
+        BalanceStripes.PostingLeg striped = balanceStripes.debit(accountId, amount, insufficientMessage);
+        if (striped != null) return leg(striped);
+        byte[] id = UUIDS.convertToDatabaseColumn(accountId);
+        int n = jdbc.update("UPDATE accounts SET balance = balance - ?, version = version + 1 WHERE id = ? AND balance >= ?",
+                amount, id, amount);
+        if (n == 0) {
+            List<Integer> stripeCount = jdbc.query("SELECT stripe_count FROM accounts WHERE id = ?",
+                    (rs, i) -> rs.getInt(1), (Object) id);
+            if (stripeCount.isEmpty()) throw new NotFoundException(notFoundMessage + accountId);
+            if (stripeCount.get(0) > 0) {
+                // striped after its stripe count was cached. The UPDATE above holds the account row, and
+                // stripes are locked before it, so start the transaction over with the fresh count
+                balanceStripes.invalidate(accountId);
+                throw new ConcurrencyFailureException("Account " + accountId + " was striped concurrently");
+            }
+            throw new BadRequestException(insufficientMessage);
+        }
+        return readBack(accountId);
+    }
+
+    // {balance, customerId}; the row is locked by this transaction's UPDATE. A striped account's
+    // row is only part of its balance, so it gets no balance_after
+    private Object[] readBack(UUID accountId) {
+        return jdbc.queryForObject("SELECT balance, customer_id, stripe_count FROM accounts WHERE id = ?",
+                (rs, i) -> new Object[]{rs.getInt(3) > 0 ? null : rs.getBigDecimal(1), UUIDS.convertToEntityAttribute(rs.getBytes(2))},
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+
+    private static Object[] leg(BalanceStripes.PostingLeg leg) {
+        return new Object[]{leg.getBalanceAfter(), leg.getOwnerId()};
+    }
+
+    /**
+     * Row buffer for one transaction. Rows of a posting that failed must be dropped with
+     * {@link #rollbackTo(int[])} when its savepoint is rolled back (see {@link #atomically}).
+     */
+    public static final class Rows {
+        private final List<Object[]> transactions = new ArrayList<>();
+        private final List<AuditLog> audits = new ArrayList<>();
+
+        public int[] mark() {
+            return new int[]{transactions.size(), audits.size()};
+        }
+
+        public void rollbackTo(int[] mark) {
+            transactions.subList(mark[0], transactions.size()).clear();
+            audits.subList(mark[1], audits.size()).clear();
+        }
+
+        public int size() {
+            return transactions.size();
+        }
+
+        public void clear() {
+            transactions.clear();
+            audits.clear();
+        }
+
+        TransactionResponse transaction(UUID accountId, String type, BigDecimal amount, BigDecimal balanceAfter, UUID referenceId) {
+            UUID id = Ids.next();
+            OffsetDateTime now = OffsetDateTime.now();
+            transactions.add(new Object[]{
+                    UUIDS.convertToDatabaseColumn(id),
+                    UUIDS.convertToDatabaseColumn(accountId),
+                    type,
+                    amount,
+                    balanceAfter,
+                    UUIDS.convertToDatabaseColumn(referenceId),
+                    "COMPLETED",
+                    Timestamp.from(now.toInstant())
+            });
+            return TransactionResponse.builder()
+                    .id(id)
+                    .accountId(accountId)
+                    .referenceId(referenceId)
+                    .type(type)
+                    .amount(amount)
+                    .balanceAfter(balanceAfter)
+                    .status("COMPLETED")
+                    .createdAt(now)
+                    .build();
+        }
+
+        void audit(AuditLog e) {
+            audits.add(e);
+        }
+
+        static Object[] auditRow(AuditLog e) {
+            return new Object[]{
+                    UUIDS.convertToDatabaseColumn(e.getId()),
+                    e.getAction(),
+                    UUIDS.convertToDatabaseColumn(e.getUserId()),
+                    UUIDS.convertToDatabaseColumn(e.getEntityId()),
+                    e.getIpAddress(),
+                    e.getDetails(),
+                    Timestamp.from(e.getCreatedAt().toInstant())
+            };
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import com.rohitsurya2809.vaultedge.exception.PostingInDoubtException;
+import com.rohitsurya2809.vaultedge.exception.ServiceBusyException;
+import com.rohitsurya2809.vaultedge.service.LedgerJournal.AccountState;
+import com.rohitsurya2809.vaultedge.service.LedgerJournal.Entry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Optional in-memory ledger (ledger.engine.enabled=true).
+ *
+ * Accounts are hash-partitioned over N single-threaded shards. A shard owns the authoritative
+ * balance of its accounts, applies postings strictly in arrival order and appends them to the
+ * {@link LedgerJournal}. A posting is acknowledged, and its rows handed to the
+ * {@link LedgerFlusher} (which writes them to MySQL asynchronously), only once the journal's
+ * group commit has made it durable; shards do not wait for the fsync themselves.
+ *
+ * Transfers are debited (and journaled) on the source shard, then credited on the destination
+ * shard; the caller is answered once both legs are applied. Replay re-applies the credit of any
+ * transfer that was journaled, so a crash between the two legs never loses money.
+ */
+@Service
+public class LedgerEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    private final boolean enabled;
+    private final int shardCount;
+    private final Path dataDir;
+    private final boolean fsync;
+    private final long snapshotIntervalSeconds;
+    private final long timeoutMillis;
+    private final int flushBatchSize;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate txTemplate;
+    private final BalanceStripes balanceStripes;
+
+    private LedgerJournal journal;
+    private LedgerFlusher flusher;
+    private Shard[] shards;
+    private ScheduledExecutorService snapshotter;
+
+    public LedgerEngine(JdbcTemplate jdbc,
+                        PlatformTransactionManager transactionManager,
+                        BalanceStripes balanceStripes,
+                        @Value("${ledger.engine.enabled:false}") boolean enabled,
+                        @Value("${ledger.engine.shards:4}") int shardCount,
+                        @Value("${ledger.engine.data-dir:./data/ledger}") String dataDir,
+                        @Value("${ledger.engine.fsync:true}") boolean fsync,
+                        @Value("${ledger.engine.snapshot-interval-seconds:60}") long snapshotIntervalSeconds,
+                        @Value("${ledger.engine.timeout-ms:5000}") long timeoutMillis,
+                        @Value("${ledger.engine.flush-batch-size:500}") int flushBatchSize) {
+        this.jdbc = jdbc;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.balanceStripes = balanceStripes;
+        this.enabled = enabled;
+        this.shardCount = Math.max(1, shardCount);
+        this.dataDir = Paths.get(dataDir);
+        this.fsync = fsync;
+        this.snapshotIntervalSeconds = Math.max(1, snapshotIntervalSeconds);
+        this.timeoutMillis = timeoutMillis;
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ---------- Lifecycle ----------
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+
+        journal = new LedgerJournal(dataDir, fsync);
+        flusher = new LedgerFlusher(jdbc, txTemplate, flushBatchSize);
+        long lastSeq = recover();
+        journal.open(lastSeq);
+
+        flusher.start();
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "ledger-snapshot"));
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly,
+                snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+
+        log.info("Ledger engine started: {} shards, journal at {}, recovered through seq {}",
+                shardCount, dataDir.toAbsolutePath(), lastSeq);
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (!enabled) return;
+
+        snapshotter.shutdownNow();
+        snapshotter.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        for (Shard s : shards) s.executor.shutdown();
+        for (Shard s : shards) s.executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        flusher.stop(30_000);
+        snapshot();
+        journal.close();
+    }
+
+    /**
+     * Rebuilds shard state from the snapshot plus every journal entry after it, and re-queues
+     * those entries for flushing (inserts are idempotent). Returns the last journaled sequence.
+     */
+    private long recover() throws IOException {
+        LedgerJournal.Snapshot snap = journal.loadSnapshot();
+        Map<UUID, AccountState> accounts = snap.accounts;
+        long lastSeq = snap.seq;
+        int replayed = 0;
+
+        // row versions restart here: the replayed rows carry every balance after the snapshot, and
+        // whatever was folded into the snapshot is already flushed
+        jdbc.update("UPDATE accounts SET ledger_version = 0 WHERE ledger_version <> 0");
+        Map<UUID, Long> versions = new HashMap<>();
+
+        for (Path segment : journal.segments()) {
+            for (Entry e : LedgerJournal.read(segment)) {
+                if (e.seq <= snap.seq) continue;
+                AccountState.fold(accounts, e);
+                requeue(e, accounts, versions);
+                lastSeq = Math.max(lastSeq, e.seq);
+                replayed++;
+            }
+        }
+
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) shards[i] = new Shard(i);
+        accounts.forEach((id, st) -> shardFor(id).accounts.put(id, st));
+        versions.forEach((id, v) -> shardFor(id).versions.put(id, v));
+
+        if (replayed > 0) log.info("Ledger engine replayed {} journal entries after snapshot seq {}", replayed, snap.seq);
+        return lastSeq;
+    }
+
+    private void requeue(Entry e, Map<UUID, AccountState> accounts, Map<UUID, Long> versions) {
+        switch (e.kind) {
+            case LedgerJournal.DEPOSIT, LedgerJournal.WITHDRAW -> {
+                flusher.expect(e.seq, 1);
+                flusher.enqueue(new LedgerFlusher.Row(e.seq, nextVersion(versions, e.accountId, e.seq), e.txId, e.accountId,
+                        e.kind == LedgerJournal.DEPOSIT ? "DEPOSIT" : "WITHDRAW",
+                        e.amount, balanceIfOpen(accounts.get(e.accountId)), null, e.createdAt));
+            }
+            case LedgerJournal.TRANSFER -> {
+                flusher.expect(e.seq, 2);
+                flusher.enqueue(new LedgerFlusher.Row(e.seq, nextVersion(versions, e.accountId, e.seq), e.txId,
+                        e.accountId, "TRANSFER_OUT", e.amount, balanceIfOpen(accounts.get(e.accountId)), e.referenceId, e.createdAt));
+                flusher.enqueue(new LedgerFlusher.Row(e.seq, nextVersion(versions, e.counterpartyId, e.seq), e.counterTxId,
+                        e.counterpartyId, "TRANSFER_IN", e.amount, balanceIfOpen(accounts.get(e.counterpartyId)), e.referenceId, e.createdAt));
+            }
+            default -> { /* OPEN produces no rows */ }
+        }
+    }
+
+    private static BigDecimal balanceIfOpen(AccountState st) {
+        return st != null && st.isOpen() ? st.balance() : null;
+    }
+
+    /**
+     * Version of the account's next flusher row, see {@link LedgerFlusher.Row#version}: the entry's
+     * journal seq, unless the account already has a row at or past it.
+     */
+    private static long nextVersion(Map<UUID, Long> versions, UUID accountId, long seq) {
+        long v = Math.max(versions.getOrDefault(accountId, 0L) + 1, seq);
+        versions.put(accountId, v);
+        return v;
+    }
+
+    // ---------- Snapshots ----------
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (Exception ex) {
+            log.warn("Ledger snapshot failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Folds closed journal segments into a new snapshot. Only segments whose rows have all been
+     * flushed are folded, so the journal always covers whatever the database does not yet have.
+     */
+    private void snapshot() throws IOException {
+        List<Path> closed;
+        long watermark;
+        synchronized (journal) {
+            closed = journal.rotate();
+            watermark = flusher.flushedThrough(journal.lastSeq());
+        }
+
+        LedgerJournal.Snapshot snap = journal.loadSnapshot();
+        long seq = snap.seq;
+        List<Path> folded = new ArrayList<>();
+        for (Path segment : closed) {
+            List<Entry> entries = LedgerJournal.read(segment);
+            long maxSeq = entries.isEmpty() ? seq : entries.get(entries.size() - 1).seq;
+            if (maxSeq > watermark) break;
+            for (Entry e : entries) {
+                if (e.seq > snap.seq) AccountState.fold(snap.accounts, e);
+            }
+            seq = Math.max(seq, maxSeq);
+            folded.add(segment);
+        }
+        if (folded.isEmpty()) return;
+
+        journal.writeSnapshot(new LedgerJournal.Snapshot(seq, snap.accounts));
+        journal.delete(folded);
+        log.debug("Ledger snapshot written through seq {} ({} segments folded)", seq, folded.size());
+    }
+
+    // ---------- Postings ----------
+
+    /**
+     * Applies a posting through the owning shard(s) and waits for it to be journaled. If it is
+     * not confirmed within ledger.engine.timeout-ms the caller gets a
+     * {@link PostingInDoubtException} carrying the posting's eventual outcome, never a failure.
+     */
+    public PostingResult post(Posting posting) {
+        if (!enabled) throw new IllegalStateException("Ledger engine is disabled");
+
+        CompletableFuture<PostingResult> future = switch (posting.getType()) {
+            case DEPOSIT -> durable(shardFor(posting.getAccountId()).submit(s -> s.deposit(posting)));
+            case WITHDRAW -> durable(shardFor(posting.getAccountId()).submit(s -> s.withdraw(posting)));
+            case TRANSFER -> transfer(posting);
+        };
+        return await(future, msg -> new PostingInDoubtException(msg, future));
+    }
+
+    private CompletableFuture<PostingResult> transfer(Posting posting) {
+        UUID toId = posting.getCounterpartyId();
+        Shard target = shardFor(toId);
+        // make sure the destination exists (and is loaded) before anything is debited; nothing is
+        // posted yet if that times out, so the caller can simply retry
+        await(target.submit(s -> s.open(toId, "Destination account not found: ")), msg -> new ServiceBusyException(msg, 1));
+
+        return shardFor(posting.getAccountId())
+                .submit(s -> s.debitForTransfer(posting))
+                .thenCompose(out -> synced(out.entry.seq).thenApply(v -> out))
+                .thenCompose(out -> target.submit(s -> s.creditForTransfer(out)));
+    }
+
+    // acknowledges the posting, and releases its rows to the flusher, once its entry is on disk
+    private CompletableFuture<PostingResult> durable(CompletableFuture<Applied> applied) {
+        return applied.thenCompose(a -> synced(a.seq).thenApply(v -> {
+            a.rows.forEach(flusher::enqueue);
+            return a.result;
+        }));
+    }
+
+    private CompletableFuture<Void> synced(long seq) {
+        return journal.whenDurable(seq).exceptionally(ex -> {
+            throw new PostingInDoubtException("Ledger journal sync failed, the posting may not be durable", null);
+        });
+    }
+
+    private <T> T await(CompletableFuture<T> future, Function<String, RuntimeException> unconfirmed) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException && ex.getCause().getCause() != null
+                    ? ex.getCause().getCause() : ex.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Ledger posting failed", cause);
+        } catch (TimeoutException ex) {
+            throw unconfirmed.apply("Ledger engine did not confirm within " + timeoutMillis + " ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw unconfirmed.apply("Interrupted while waiting for ledger engine");
+        }
+    }
+
+    private Shard shardFor(UUID accountId) {
+        return shards[Math.floorMod(accountId.hashCode(), shards.length)];
+    }
+
+    private Entry append(Entry entry, int rows) {
+        try {
+            synchronized (journal) {
+                Entry e = journal.append(entry);
+                if (rows > 0) flusher.expect(e.seq, rows);
+                return e;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Ledger journal append failed", ex);
+        }
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static TransactionResponse response(UUID txId, UUID accountId, UUID referenceId, String type,
+                                                BigDecimal amount, BigDecimal balanceAfter, long createdAt) {
+        return TransactionResponse.builder()
+                .id(txId)
+                .accountId(accountId)
+                .referenceId(referenceId)
+                .type(type)
+                .amount(amount)
+                .balanceAfter(balanceAfter)
+                .status("COMPLETED")
+                .createdAt(OffsetDateTime.ofInstant(Instant.ofEpochMilli(createdAt), ZoneId.systemDefault()))
+                .build();
+    }
+
+    /**
+     * A posting applied by its shard and journaled, waiting for the group commit.
+     */
+    private static final class Applied {
+        final long seq;
+        final PostingResult result;
+        final List<LedgerFlusher.Row> rows;
+
+        Applied(long seq, PostingResult result, List<LedgerFlusher.Row> rows) {
+            this.seq = seq;
+            this.result = result;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Debit leg of a transfer that still has to be credited on the destination shard.
+     */
+    private static final class TransferOut {
+        final Entry entry;
+        final PostingResult result;
+        final LedgerFlusher.Row outRow;
+
+        TransferOut(Entry entry, PostingResult result, LedgerFlusher.Row outRow) {
+            this.entry = entry;
+            this.result = result;
+            this.outRow = outRow;
+        }
+    }
+
+    private interface ShardTask<T> {
+        T run(Shard shard) throws Exception;
+    }
+
+    /**
+     * Single-writer partition. {@link #accounts} is only ever touched from the shard's own thread.
+     */
+    private final class Shard {
+
+        final ExecutorService executor;
+        final Map<UUID, AccountState> accounts = new HashMap<>();
+        // version of each account's latest flusher row
+        final Map<UUID, Long> versions = new HashMap<>();
+
+        Shard(int index) {
+            this.executor = Executors.newSingleThreadExecutor(r -> daemon(r, "ledger-shard-" + index));
+        }
+
+        <T> CompletableFuture<T> submit(ShardTask<T> task) {
+            CompletableFuture<T> f = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        f.complete(task.run(this));
+                    } catch (Throwable t) {
+                        f.completeExceptionally(t);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                f.completeExceptionally(new IllegalStateException("Ledger engine is shutting down"));
+            }
+            return f;
+        }
+
+        /**
+         * Loads an account into the shard on first use, journaling the balance it started from.
+         * Credits replayed before the account was ever opened are kept in {@code delta}.
+         */
+        AccountState open(UUID accountId, String notFoundMessage) {
+            AccountState st = accounts.get(accountId);
+            if (st != null && st.isOpen()) return st;
+
+            // an account striped before the engine was enabled: fold its stripes, the engine owns the row from here on
+            balanceStripes.consolidate(accountId);
+            List<Object[]> rows = jdbc.query("SELECT customer_id, balance FROM accounts WHERE id = ?",
+                    (rs, i) -> new Object[]{rs.getBytes(1), rs.getBigDecimal(2)},
+                    (Object) UUIDS.convertToDatabaseColumn(accountId));
+            if (rows.isEmpty()) throw new NotFoundException(notFoundMessage + accountId);
+
+            UUID ownerId = UUIDS.convertToEntityAttribute((byte[]) rows.get(0)[0]);
+            BigDecimal base = rows.get(0)[1] == null ? BigDecimal.ZERO : (BigDecimal) rows.get(0)[1];
+            append(new Entry(0, LedgerJournal.OPEN, accountId, null, ownerId, null, null, null, base,
+                    System.currentTimeMillis()), 0);
+
+            if (st == null) {
+                st = new AccountState();
+                accounts.put(accountId, st);
+            }
+            st.ownerId = ownerId;
+            st.base = base;
+            return st;
+        }
+
+        Applied deposit(Posting p) {
+            AccountState st = open(p.getAccountId(), "Account not found: ");
+            BigDecimal after = st.balance().add(p.getAmount());
+            Entry e = append(new Entry(0, LedgerJournal.DEPOSIT, p.getAccountId(), null, st.ownerId,
+                    Ids.next(), null, null, p.getAmount(), System.currentTimeMillis()), 1);
+            st.delta = st.delta.add(p.getAmount());
+            return new Applied(e.seq,
+                    new PostingResult(response(e.txId, e.accountId, null, "DEPOSIT", e.amount, after, e.createdAt), st.ownerId),
+                    List.of(new LedgerFlusher.Row(e.seq, nextVersion(versions, e.accountId, e.seq), e.txId, e.accountId,
+                            "DEPOSIT", e.amount, after, null, e.createdAt)));
+        }
+
+        Applied withdraw(Posting p) {
+            AccountState st = open(p.getAccountId(), "Account not found: ");
+            if (st.balance().compareTo(p.getAmount()) < 0) {
+                throw new BadRequestException("Insufficient balance");
+            }
+            BigDecimal after = st.balance().subtract(p.getAmount());
+            Entry e = append(new Entry(0, LedgerJournal.WITHDRAW, p.getAccountId(), null, st.ownerId,
+                    Ids.next(), null, null, p.getAmount(), System.currentTimeMillis()), 1);
+            st.delta = st.delta.subtract(p.getAmount());
+            return new Applied(e.seq,
+                    new PostingResult(response(e.txId, e.accountId, null, "WITHDRAW", e.amount, after, e.createdAt), st.ownerId),
+                    List.of(new LedgerFlusher.Row(e.seq, nextVersion(versions, e.accountId, e.seq), e.txId, e.accountId,
+                            "WITHDRAW", e.amount, after, null, e.createdAt)));
+        }
+
+        TransferOut debitForTransfer(Posting p) {
+            AccountState st = open(p.getAccountId(), "Source account not found: ");
+            if (st.balance().compareTo(p.getAmount()) < 0) {
+                throw new BadRequestException("Insufficient balance in source account");
+            }
+            BigDecimal after = st.balance().subtract(p.getAmount());
+            Entry e = append(new Entry(0, LedgerJournal.TRANSFER, p.getAccountId(), p.getCounterpartyId(), st.ownerId,
+                    Ids.next(), Ids.next(), p.getReferenceId(), p.getAmount(), System.currentTimeMillis()), 2);
+            st.delta = st.delta.subtract(p.getAmount());
+            return new TransferOut(e, new PostingResult(
+                    response(e.txId, e.accountId, e.referenceId, "TRANSFER_OUT", e.amount, after, e.createdAt), st.ownerId),
+                    new LedgerFlusher.Row(e.seq, nextVersion(versions, e.accountId, e.seq), e.txId, e.accountId,
+                            "TRANSFER_OUT", e.amount, after, e.referenceId, e.createdAt));
+        }
+
+        PostingResult creditForTransfer(TransferOut out) {
+            Entry e = out.entry;
+            // opened by transfer() before the debit, and shards never unload accounts
+            AccountState st = accounts.get(e.counterpartyId);
+            st.delta = st.delta.add(e.amount);
+            // the debit was already durable when this leg was scheduled
+            flusher.enqueue(out.outRow);
+            // later postings of the destination may already have rows; the version keeps this one after them
+            flusher.enqueue(new LedgerFlusher.Row(e.seq, nextVersion(versions, e.counterpartyId, e.seq), e.counterTxId,
+                    e.counterpartyId, "TRANSFER_IN", e.amount, st.balance(), e.referenceId, e.createdAt));
+            return out.result;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer that copies ledger engine postings into the {@code transactions} and
+ * {@code accounts} tables. Inserts are idempotent (the transaction id comes from the journal),
+ * and account balances are written as absolute values, so re-flushing after a crash is safe.
+ *
+ * Rows reach the queue from the journal's sync thread and from the shards, so one account's rows
+ * can arrive out of order. Each row carries its account's {@link Row#version}, and a balance is
+ * only written over an older one (accounts.ledger_version).
+ */
+public class LedgerFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerFlusher.class);
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate txTemplate;
+    private final int maxBatch;
+
+    private final BlockingQueue<Row> queue = new LinkedBlockingQueue<>();
+    // journal seq -> rows of that entry not yet written
+    private final ConcurrentSkipListMap<Long, Integer> pending = new ConcurrentSkipListMap<>();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public LedgerFlusher(JdbcTemplate jdbc, TransactionTemplate txTemplate, int maxBatch) {
+        this.jdbc = jdbc;
+        this.txTemplate = txTemplate;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Registers how many rows a journal entry will produce. Must be called before the entry's
+     * sequence becomes visible to {@link #flushedThrough(long)}.
+     */
+    public void expect(long seq, int rows) {
+        pending.merge(seq, rows, Integer::sum);
+    }
+
+    public void enqueue(Row row) {
+        queue.add(row);
+    }
+
+    /**
+     * Highest journal sequence whose rows are all in the database.
+     */
+    public long flushedThrough(long lastSeq) {
+        Map.Entry<Long, Integer> first = pending.firstEntry();
+        return first == null ? lastSeq : Math.min(lastSeq, first.getKey() - 1);
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "ledger-flusher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops accepting work once the queue is drained (or the timeout elapses).
+     */
+    public void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        if (worker != null) worker.join(timeoutMillis);
+    }
+
+    private void run() {
+        List<Row> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Row first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                flushWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushWithRetry(List<Row> batch) throws InterruptedException {
+        long backoff = 50;
+        while (true) {
+            try {
+                txTemplate.executeWithoutResult(status -> write(batch));
+                for (Row r : batch) {
+                    pending.computeIfPresent(r.seq, (k, n) -> n > 1 ? n - 1 : null);
+                }
+                return;
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    // the journal still has these rows; recovery re-flushes them on next start
+                    log.warn("Ledger flush abandoned on shutdown ({} rows): {}", batch.size(), ex.toString());
+                    return;
+                }
+                log.warn("Ledger flush failed, retrying in {} ms: {}", backoff, ex.toString());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, 5000);
+            }
+        }
+    }
+
+    private void write(List<Row> batch) {
+        List<Object[]> inserts = new ArrayList<>(batch.size());
+        List<Timestamp> createdAts = new ArrayList<>(batch.size());
+        Map<UUID, Row> latest = new HashMap<>();
+        for (Row r : batch) {
+            createdAts.add(Timestamp.from(Instant.ofEpochMilli(r.createdAt)));
+            inserts.add(new Object[]{
+                    UUIDS.convertToDatabaseColumn(r.txId),
+                    UUIDS.convertToDatabaseColumn(r.accountId),
+                    r.type,
+                    r.amount,
+                    r.balanceAfter,
+                    UUIDS.convertToDatabaseColumn(r.referenceId),
+                    createdAts.get(createdAts.size() - 1)
+            });
+            if (r.balanceAfter != null) latest.merge(r.accountId, r, (a, b) -> b.version > a.version ? b : a);
+        }
+        jdbc.batchUpdate("INSERT IGNORE INTO transactions (id, account_id, type, amount, balance_after, reference_id, status, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'COMPLETED', ?)", inserts);
+        // a backlog or journal recovery can land rows on days the rollup job has already rolled
+        DailyRollupService.markLate(jdbc, createdAts);
+
+        List<Object[]> updates = new ArrayList<>(latest.size());
+        for (Row r : latest.values()) {
+            updates.add(new Object[]{r.balanceAfter, r.version, UUIDS.convertToDatabaseColumn(r.accountId), r.version});
+        }
+        // an earlier batch may already have written a newer balance
+        jdbc.batchUpdate("UPDATE accounts SET balance = ?, ledger_version = ?, version = version + 1 "
+                + "WHERE id = ? AND ledger_version < ?", updates);
+    }
+
+    /**
+     * One {@code transactions} row derived from a journal entry.
+     */
+    public static final class Row {
+        final long seq;
+        // orders the balances of one account: its journal seq, or one past the account's previous
+        // row if that was newer (a transfer credited after later postings of the destination)
+        final long version;
+        final UUID txId;
+        final UUID accountId;
+        final String type;
+        final BigDecimal amount;
+        final BigDecimal balanceAfter;
+        final UUID referenceId;
+        final long createdAt;
+
+        public Row(long seq, long version, UUID txId, UUID accountId, String type, BigDecimal amount,
+                   BigDecimal balanceAfter, UUID referenceId, long createdAt) {
+            this.seq = seq;
+            this.version = version;
+            this.txId = txId;
+            this.accountId = accountId;
+            this.type = type;
+            this.amount = amount;
+            this.balanceAfter = balanceAfter;
+            this.referenceId = referenceId;
+            this.createdAt = createdAt;
+        }
+    }
+}
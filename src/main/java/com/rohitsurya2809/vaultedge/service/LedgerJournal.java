@@ -0,0 +1,425 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of the ledger engine, plus its snapshot file.
+ *
+ * Layout of the data directory:
+ *   journal-<firstSeq>.log   rolling segments, records are [len][crc32][payload]
+ *   snapshot.bin             folded account states up to a journal sequence
+ *
+ * Every entry carries deltas (not absolute balances), so replay does not depend on the
+ * order in which shards happened to interleave their appends.
+ *
+ * Appends only write; durability is group-committed by a single sync thread that forces the
+ * segment once for everything appended since its previous pass and then completes the
+ * {@link #whenDurable(long)} futures it covers. Segments are written strictly in sequence
+ * order, so a forced sequence implies every lower one is on disk too.
+ */
+public class LedgerJournal implements Closeable {
+
+    public static final byte OPEN = 1;
+    public static final byte DEPOSIT = 2;
+    public static final byte WITHDRAW = 3;
+    public static final byte TRANSFER = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x56454C53; // "VELS"
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean fsync;
+
+    private FileChannel current;
+    private Path currentPath;
+    private long nextSeq;
+
+    // group commit state, guarded by this
+    private long durableSeq;
+    private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    private IOException syncFailure;
+    private boolean closed;
+    private Thread syncer;
+
+    public LedgerJournal(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+    }
+
+    // ---------- Writing ----------
+
+    /**
+     * Opens a fresh segment after recovery; {@code lastSeq} is the highest sequence already durable.
+     */
+    public synchronized void open(long lastSeq) throws IOException {
+        this.nextSeq = lastSeq + 1;
+        this.durableSeq = lastSeq;
+        openSegment();
+        if (fsync) {
+            syncer = new Thread(this::syncLoop, "ledger-journal-sync");
+            syncer.setDaemon(true);
+            syncer.start();
+        }
+    }
+
+    /**
+     * Assigns the next sequence number to the entry and appends it. The entry is not durable
+     * until {@link #whenDurable(long)} for its sequence completes.
+     */
+    public synchronized Entry append(Entry entry) throws IOException {
+        Entry sequenced = entry.withSeq(nextSeq++);
+        byte[] payload = encode(sequenced);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+        buf.putInt(payload.length);
+        buf.putInt((int) crc.getValue());
+        buf.put(payload);
+        buf.flip();
+        while (buf.hasRemaining()) current.write(buf);
+        return sequenced;
+    }
+
+    /**
+     * Completes once every entry up to {@code seq} is on disk (at once when fsync is off). Fails
+     * if a sync failed: from then on nothing appended can be confirmed durable.
+     */
+    public synchronized CompletableFuture<Void> whenDurable(long seq) {
+        if (!fsync || seq <= durableSeq) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        if (syncFailure != null || closed) {
+            f.completeExceptionally(syncFailure != null ? syncFailure : new IOException("Ledger journal is closed"));
+            return f;
+        }
+        waiters.add(f);
+        notifyAll();
+        return f;
+    }
+
+    private void syncLoop() {
+        while (true) {
+            List<CompletableFuture<Void>> batch;
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                while (waiters.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (waiters.isEmpty()) return;
+                batch = waiters;
+                waiters = new ArrayList<>();
+                channel = current;
+                target = nextSeq - 1;
+            }
+
+            // the fsync runs outside the monitor, so shards keep appending the next batch meanwhile
+            IOException failure = null;
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException ex) {
+                // rotated or closed meanwhile; both force the segment before closing it
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            synchronized (this) {
+                if (failure == null) durableSeq = Math.max(durableSeq, target);
+                else if (syncFailure == null) syncFailure = failure;
+            }
+            for (CompletableFuture<Void> f : batch) {
+                if (failure == null) f.complete(null);
+                else f.completeExceptionally(failure);
+            }
+        }
+    }
+
+    public synchronized long lastSeq() {
+        return nextSeq - 1;
+    }
+
+    /**
+     * Closes the active segment and starts a new one. Returns the closed segments that a
+     * snapshot may now fold (everything except the new active segment).
+     */
+    public synchronized List<Path> rotate() throws IOException {
+        current.force(true);
+        durableSeq = nextSeq - 1;
+        current.close();
+        openSegment();
+        List<Path> closed = new ArrayList<>(segments());
+        closed.remove(currentPath);
+        return closed;
+    }
+
+    private void openSegment() throws IOException {
+        currentPath = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSeq, SEGMENT_SUFFIX));
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Lets the sync thread settle every pending waiter, then forces and closes the active segment.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread t;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            t = syncer;
+        }
+        if (t != null) {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (current != null && current.isOpen()) {
+                current.force(true);
+                current.close();
+            }
+        }
+    }
+
+    // ---------- Reading ----------
+
+    public List<Path> segments() throws IOException {
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : ds) out.add(p);
+        }
+        out.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        return out;
+    }
+
+    /**
+     * Reads all intact records of a segment. A torn or corrupt tail (crash mid-append) ends the read.
+     */
+    public static List<Entry> read(Path segment) throws IOException {
+        List<Entry> out = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException eof) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                if (len <= 0 || len > 1 << 20) break;
+                byte[] payload = new byte[len];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException eof) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) break;
+                out.add(decode(payload));
+            }
+        } catch (EOFException ignored) {
+            // torn header
+        }
+        return out;
+    }
+
+    public void delete(Collection<Path> segments) throws IOException {
+        for (Path p : segments) Files.deleteIfExists(p);
+    }
+
+    // ---------- Snapshot ----------
+
+    public Snapshot loadSnapshot() throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+        Snapshot snap = new Snapshot(0L, new HashMap<>());
+        if (!Files.exists(file)) return snap;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Corrupt ledger snapshot: " + file);
+            long seq = in.readLong();
+            int n = in.readInt();
+            Map<UUID, AccountState> accounts = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                UUID accountId = readUuid(in);
+                AccountState st = new AccountState();
+                st.ownerId = readUuid(in);
+                st.base = in.readBoolean() ? new BigDecimal(in.readUTF()) : null;
+                st.delta = new BigDecimal(in.readUTF());
+                accounts.put(accountId, st);
+            }
+            return new Snapshot(seq, accounts);
+        }
+    }
+
+    public void writeSnapshot(Snapshot snap) throws IOException {
+        Path tmp = dir.resolve("snapshot.bin.tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(snap.seq);
+            out.writeInt(snap.accounts.size());
+            for (Map.Entry<UUID, AccountState> e : snap.accounts.entrySet()) {
+                AccountState st = e.getValue();
+                writeUuid(out, e.getKey());
+                writeUuid(out, st.ownerId);
+                out.writeBoolean(st.base != null);
+                if (st.base != null) out.writeUTF(st.base.toPlainString());
+                out.writeUTF(st.delta.toPlainString());
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, dir.resolve("snapshot.bin"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------- Encoding ----------
+
+    private static byte[] encode(Entry e) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(160);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeLong(e.seq);
+        out.writeByte(e.kind);
+        writeUuid(out, e.accountId);
+        writeUuid(out, e.counterpartyId);
+        writeUuid(out, e.ownerId);
+        writeUuid(out, e.txId);
+        writeUuid(out, e.counterTxId);
+        writeUuid(out, e.referenceId);
+        out.writeUTF(e.amount.toPlainString());
+        out.writeLong(e.createdAt);
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static Entry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long seq = in.readLong();
+        byte kind = in.readByte();
+        UUID accountId = readUuid(in);
+        UUID counterpartyId = readUuid(in);
+        UUID ownerId = readUuid(in);
+        UUID txId = readUuid(in);
+        UUID counterTxId = readUuid(in);
+        UUID referenceId = readUuid(in);
+        BigDecimal amount = new BigDecimal(in.readUTF());
+        long createdAt = in.readLong();
+        return new Entry(seq, kind, accountId, counterpartyId, ownerId, txId, counterTxId, referenceId, amount, createdAt);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    // ---------- Types ----------
+
+    /**
+     * One journal record. For OPEN the amount is the balance loaded from the database; for
+     * postings it is the (positive) posted amount and the kind says which way it moves.
+     */
+    public static final class Entry {
+        public final long seq;
+        public final byte kind;
+        public final UUID accountId;
+        public final UUID counterpartyId;
+        public final UUID ownerId;
+        public final UUID txId;
+        public final UUID counterTxId;
+        public final UUID referenceId;
+        public final BigDecimal amount;
+        public final long createdAt;
+
+        public Entry(long seq, byte kind, UUID accountId, UUID counterpartyId, UUID ownerId,
+                     UUID txId, UUID counterTxId, UUID referenceId, BigDecimal amount, long createdAt) {
+            this.seq = seq;
+            this.kind = kind;
+            this.accountId = accountId;
+            this.counterpartyId = counterpartyId;
+            this.ownerId = ownerId;
+            this.txId = txId;
+            this.counterTxId = counterTxId;
+            this.referenceId = referenceId;
+            this.amount = amount;
+            this.createdAt = createdAt;
+        }
+
+        Entry withSeq(long seq) {
+            return new Entry(seq, kind, accountId, counterpartyId, ownerId, txId, counterTxId, referenceId, amount, createdAt);
+        }
+    }
+
+    /**
+     * Folded state of one account. {@code base} is the balance the engine loaded from the database
+     * (null until the account has been opened); {@code delta} is everything posted since.
+     */
+    public static final class AccountState {
+        public UUID ownerId;
+        public BigDecimal base;
+        public BigDecimal delta = BigDecimal.ZERO;
+
+        public boolean isOpen() { return base != null; }
+
+        public BigDecimal balance() { return base.add(delta); }
+
+        /** Applies one journal entry to the account states it touches. */
+        public static void fold(Map<UUID, AccountState> accounts, Entry e) {
+            switch (e.kind) {
+                case OPEN -> {
+                    AccountState st = accounts.computeIfAbsent(e.accountId, k -> new AccountState());
+                    st.ownerId = e.ownerId;
+                    st.base = e.amount;
+                }
+                case DEPOSIT -> {
+                    AccountState st = accounts.computeIfAbsent(e.accountId, k -> new AccountState());
+                    st.delta = st.delta.add(e.amount);
+                }
+                case WITHDRAW -> {
+                    AccountState st = accounts.computeIfAbsent(e.accountId, k -> new AccountState());
+                    st.delta = st.delta.subtract(e.amount);
+                }
+                case TRANSFER -> {
+                    AccountState from = accounts.computeIfAbsent(e.accountId, k -> new AccountState());
+                    from.delta = from.delta.subtract(e.amount);
+                    AccountState to = accounts.computeIfAbsent(e.counterpartyId, k -> new AccountState());
+                    to.delta = to.delta.add(e.amount);
+                }
+                default -> throw new IllegalStateException("Unknown journal entry kind: " + e.kind);
+            }
+        }
+    }
+
+    public static final class Snapshot {
+        public final long seq;
+        public final Map<UUID, AccountState> accounts;
+
+        public Snapshot(long seq, Map<UUID, AccountState> accounts) {
+            this.seq = seq;
+            this.accounts = accounts;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A single validated money movement, independent of how it gets applied
+ * (direct JPA write path, ledger engine, group commit...).
+ */
+public final class Posting {
+
+    public enum Type { DEPOSIT, WITHDRAW, TRANSFER }
+
+    private final Type type;
+    private final UUID accountId;       // credited account for DEPOSIT, debited account otherwise
+    private final UUID counterpartyId;  // destination account for TRANSFER, null otherwise
+    private final BigDecimal amount;
+    private final UUID referenceId;
+
+    private Posting(Type type, UUID accountId, UUID counterpartyId, BigDecimal amount, UUID referenceId) {
+        this.type = type;
+        this.accountId = accountId;
+        this.counterpartyId = counterpartyId;
+        this.amount = amount;
+        this.referenceId = referenceId;
+    }
+
+    public static Posting deposit(UUID accountId, BigDecimal amount) {
+        return new Posting(Type.DEPOSIT, accountId, null, amount, null);
+    }
+
+    public static Posting withdraw(UUID accountId, BigDecimal amount) {
+        return new Posting(Type.WITHDRAW, accountId, null, amount, null);
+    }
+
+    public static Posting transfer(UUID fromAccountId, UUID toAccountId, BigDecimal amount, UUID referenceId) {
+        return new Posting(Type.TRANSFER, fromAccountId, toAccountId, amount, referenceId);
+    }
+
+    public Type getType() { return type; }
+    public UUID getAccountId() { return accountId; }
+    public UUID getCounterpartyId() { return counterpartyId; }
+    public BigDecimal getAmount() { return amount; }
+    public UUID getReferenceId() { return referenceId; }
+}
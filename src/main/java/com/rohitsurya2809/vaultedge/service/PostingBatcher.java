@@ -0,0 +1,213 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import com.rohitsurya2809.vaultedge.exception.PostingInDoubtException;
+import com.rohitsurya2809.vaultedge.exception.ServiceBusyException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Optional group-commit stage (ledger.group-commit.enabled=true).
+ *
+ * Postings that arrive within a short window (or until the batch is full) are applied by a
+ * single writer thread in one database transaction through {@link JdbcPostingWriter}: guarded
+ * balance UPDATEs per posting, one JDBC batch for all transactions and audit rows, one commit.
+ * Business failures (missing account, insufficient funds) only fail their own caller; if the
+ * batch as a whole cannot commit, its postings are retried one transaction each.
+ */
+@Service
+public class PostingBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PostingBatcher.class);
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long timeoutMillis;
+
+    private final JdbcPostingWriter writer;
+    private final TransactionTemplate txTemplate;
+    private final BlockingQueue<Pending> queue;
+    private final DistributionSummary batchSizes;
+    private final Timer commitTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public PostingBatcher(JdbcPostingWriter writer,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${ledger.group-commit.enabled:false}") boolean enabled,
+                          @Value("${ledger.group-commit.window-ms:2}") long windowMillis,
+                          @Value("${ledger.group-commit.max-batch-size:100}") int maxBatchSize,
+                          @Value("${ledger.group-commit.queue-capacity:10000}") int queueCapacity,
+                          @Value("${ledger.group-commit.timeout-ms:5000}") long timeoutMillis) {
+        this.writer = writer;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.timeoutMillis = timeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        this.batchSizes = DistributionSummary.builder("ledger.group_commit.batch_size")
+                .description("Postings applied per group commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("ledger.group_commit.duration")
+                .description("Time to apply and commit one batch")
+                .register(meterRegistry);
+        meterRegistry.gauge("ledger.group_commit.queue_depth", queue, BlockingQueue::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        worker = new Thread(this::run, "posting-batcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) worker.join(timeoutMillis);
+    }
+
+    /**
+     * Queues the posting for the next group commit and waits for its own outcome. Once queued,
+     * a posting that is not settled within ledger.group-commit.timeout-ms may still commit with
+     * a later batch, so the caller gets a {@link PostingInDoubtException} carrying its outcome.
+     * A full queue or a stopped batcher rejects the posting with a retryable 503.
+     */
+    public PostingResult post(Posting posting) {
+        Pending pending = new Pending(posting);
+        if (!running || !queue.offer(pending)) {
+            throw new ServiceBusyException("Posting queue is full, retry shortly", 1);
+        }
+        try {
+            return pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Posting failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new PostingInDoubtException("Posting was not committed within " + timeoutMillis + " ms", pending.future);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PostingInDoubtException("Interrupted while waiting for group commit", pending.future);
+        }
+    }
+
+    // ---------- Writer thread ----------
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException ex) {
+                log.error("Group commit worker error", ex);
+                for (Pending p : batch) p.future.completeExceptionally(ex);
+            } finally {
+                batch.clear();
+            }
+        }
+        for (Pending p; (p = queue.poll()) != null; ) {
+            p.future.completeExceptionally(new ServiceBusyException("Posting batcher stopped, retry shortly", 1));
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        try {
+            commitTimer.record(() -> txTemplate.executeWithoutResult(status -> applyAll(batch)));
+            for (Pending p : batch) p.finish();
+        } catch (RuntimeException ex) {
+            log.warn("Group commit of {} postings failed, retrying individually: {}", batch.size(), ex.toString());
+            for (Pending p : batch) {
+                try {
+                    txTemplate.executeWithoutResult(status -> applyAll(List.of(p)));
+                    p.finish();
+                } catch (RuntimeException single) {
+                    p.future.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void applyAll(List<Pending> batch) {
+        List<Posting> postings = new ArrayList<>(batch.size());
+        for (Pending p : batch) postings.add(p.posting);
+        writer.lockAccounts(JdbcPostingWriter.accountsOf(postings));
+
+        JdbcPostingWriter.Rows rows = new JdbcPostingWriter.Rows();
+        for (Pending p : batch) {
+            p.reset();
+            try {
+                // a transfer may have applied one leg before the other fails; undo just that posting.
+                // Deposits and withdrawals fail before they write anything
+                p.result = p.posting.getType() == Posting.Type.TRANSFER
+                        ? writer.atomically(rows, () -> writer.apply(p.posting, rows))
+                        : writer.apply(p.posting, rows);
+            } catch (NotFoundException | BadRequestException ex) {
+                p.failure = ex;
+            }
+        }
+        writer.flush(rows);
+    }
+
+    private static final class Pending {
+        final Posting posting;
+        final CompletableFuture<PostingResult> future = new CompletableFuture<>();
+        PostingResult result;
+        RuntimeException failure;
+
+        Pending(Posting posting) {
+            this.posting = posting;
+        }
+
+        void reset() {
+            result = null;
+            failure = null;
+        }
+
+        // only called after the transaction that produced the result has committed
+        void finish() {
+            if (failure != null) future.completeExceptionally(failure);
+            else future.complete(result);
+        }
+    }
+}
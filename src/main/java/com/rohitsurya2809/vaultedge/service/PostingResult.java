@@ -0,0 +1,23 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+
+import java.util.UUID;
+
+/**
+ * Outcome of an applied {@link Posting}: the response returned to the caller
+ * plus the owner of the (source) account, which the audit trail needs.
+ */
+public final class PostingResult {
+
+    private final TransactionResponse response;
+    private final UUID ownerId;
+
+    public PostingResult(TransactionResponse response, UUID ownerId) {
+        this.response = response;
+        this.ownerId = ownerId;
+    }
+
+    public TransactionResponse getResponse() { return response; }
+    public UUID getOwnerId() { return ownerId; }
+}
@@ -0,0 +1,126 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+import com.rohitsurya2809.vaultedge.exception.BadRequestException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Streams an account's full history (oldest first) as NDJSON or CSV.
+ *
+ * Rows are read with a forward-only Hibernate scroll using a bounded JDBC fetch size and are
+ * projected straight into {@link TransactionResponse}, so no entities are attached to the
+ * persistence context and memory stays flat however long the history is. Runs in its own
+ * read-only transaction because the response body is written outside the request thread.
+ */
+@Service
+public class TransactionExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) return NDJSON;
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Unsupported export format: " + value);
+            }
+        }
+    }
+
+    private static final String QUERY =
+            "select new com.rohitsurya2809.vaultedge.dto.TransactionResponse(" +
+            "t.id, t.account.id, t.referenceId, t.type, t.amount, t.balanceAfter, t.status, t.createdAt) " +
+            "from Transaction t where t.account.id = :accountId order by t.createdAt, t.id";
+
+    private static final String CSV_HEADER = "id,accountId,referenceId,type,amount,balanceAfter,status,createdAt";
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+
+    public TransactionExportService(EntityManager entityManager,
+                                    ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${export.fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    public void export(UUID accountId, Format format, OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try (ScrollableResults<TransactionResponse> rows = session.createQuery(QUERY, TransactionResponse.class)
+                    .setParameter("accountId", accountId)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+
+                if (format == Format.CSV) writer.write(CSV_HEADER + "\n");
+                while (rows.next()) {
+                    TransactionResponse row = rows.get();
+                    writer.write(format == Format.CSV ? toCsv(row) : objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                writer.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private static String toCsv(TransactionResponse r) {
+        return String.join(",",
+                csv(r.getId()),
+                csv(r.getAccountId()),
+                csv(r.getReferenceId()),
+                csv(r.getType()),
+                csv(r.getAmount() != null ? r.getAmount().toPlainString() : null),
+                csv(r.getBalanceAfter() != null ? r.getBalanceAfter().toPlainString() : null),
+                csv(r.getStatus()),
+                csv(r.getCreatedAt()));
+    }
+
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String s = value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
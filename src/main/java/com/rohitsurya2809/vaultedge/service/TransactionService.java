@@ -1,271 +1,257 @@
 package com.rohitsurya2809.vaultedge.service;
 
 import com.rohitsurya2809.vaultedge.dto.*;
-import com.rohitsurya2809.vaultedge.exception.NotFoundException;
 import com.rohitsurya2809.vaultedge.exception.BadRequestException;
-import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.exception.PostingInDoubtException;
 import com.rohitsurya2809.vaultedge.model.Transaction;
-import com.rohitsurya2809.vaultedge.repository.AccountRepository;
 import com.rohitsurya2809.vaultedge.repository.TransactionRepository;
 import com.rohitsurya2809.vaultedge.repository.TransactionSpecification;
 import com.rohitsurya2809.vaultedge.service.AuditService;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @Service
 public class TransactionService {
 
-    private final AccountRepository accountRepository;
+    private static final int MAX_SLICE_SIZE = 500;
+
     private final TransactionRepository transactionRepository;
     private final IdempotencyService idempotencyService;
     private final AuditService auditService;
-
-    public TransactionService(AccountRepository accountRepository,
-                              TransactionRepository transactionRepository,
+    private final LedgerEngine ledgerEngine;
+    private final PostingBatcher postingBatcher;
+    private final DailyRollupService dailyRollupService;
+    private final TransactionTemplate txTemplate;
+    private final EntityManager entityManager;
+    private final ConflictRetry conflictRetry;
+    private final JdbcPostingWriter postingWriter;
+
+    public TransactionService(TransactionRepository transactionRepository,
                               IdempotencyService idempotencyService,
-                              AuditService auditService) {
-        this.accountRepository = accountRepository;
+                              AuditService auditService,
+                              LedgerEngine ledgerEngine,
+                              PostingBatcher postingBatcher,
+                              DailyRollupService dailyRollupService,
+                              PlatformTransactionManager transactionManager,
+                              EntityManager entityManager,
+                              ConflictRetry conflictRetry,
+                              JdbcPostingWriter postingWriter) {
         this.transactionRepository = transactionRepository;
         this.idempotencyService = idempotencyService;
         this.auditService = auditService;
+        this.ledgerEngine = ledgerEngine;
+        this.postingBatcher = postingBatcher;
+        this.dailyRollupService = dailyRollupService;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.conflictRetry = conflictRetry;
+        this.postingWriter = postingWriter;
     }
 
     
 
     // ---------- Deposit ----------
-    @Transactional
     public TransactionResponse deposit(UUID accountId, DepositRequest req, String idempKey) {
-        // idempotency check
-        if (idempKey != null) {
-            TransactionResponse cached = idempotencyService.getIfExists(idempKey, TransactionResponse.class);
-            if (cached != null) return cached;
-        }
-
-        BigDecimal amount = req.getAmount();
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BadRequestException("Deposit amount must be greater than 0");
-        }
-
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new NotFoundException("Account not found: " + accountId));
-
-        BigDecimal newBalance = (account.getBalance() == null ? BigDecimal.ZERO : account.getBalance()).add(amount);
-        account.setBalance(newBalance);
-        accountRepository.save(account);
-
-        Transaction tx = Transaction.builder()
-                .id(UUID.randomUUID())
-                .account(account)
-                .type("DEPOSIT")
-                .amount(amount)
-                .balanceAfter(newBalance)
-                .status("COMPLETED")
-                .createdAt(OffsetDateTime.now())
-                .build();
-
-        transactionRepository.save(tx);
-        auditService.log(
-    "DEPOSIT",
-    account.getCustomer().getId(),
-    tx.getId(),
-    null,
-    Map.of(
-        "accountId", accountId,
-        "amount", amount,
-        "balanceAfter", newBalance
-    )
-);
-
-
-        TransactionResponse resp = toResponse(tx);
-
-        if (idempKey != null) idempotencyService.save(idempKey, resp);
-        
+        return idempotent(idempKey, () -> {
+            BigDecimal amount = req.getAmount();
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                throw new BadRequestException("Deposit amount must be greater than 0");
+            }
 
-        return resp;
+            return execute(Posting.deposit(accountId, amount), idempKey);
+        });
     }
 
     // ---------- Withdraw ----------
-    @Transactional
     public TransactionResponse withdraw(UUID accountId, WithdrawRequest req, String idempKey) {
-        // idempotency check
-        if (idempKey != null) {
-            TransactionResponse cached = idempotencyService.getIfExists(idempKey, TransactionResponse.class);
-            if (cached != null) return cached;
-        }
-
-        BigDecimal amount = req.getAmount();
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BadRequestException("Withdraw amount must be greater than 0");
-        }
-
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new NotFoundException("Account not found: " + accountId));
-
-        BigDecimal balance = account.getBalance() == null ? BigDecimal.ZERO : account.getBalance();
-        if (balance.compareTo(amount) < 0) {
-            throw new BadRequestException("Insufficient balance");
-        }
-
-        BigDecimal newBalance = balance.subtract(amount);
-        account.setBalance(newBalance);
-        accountRepository.save(account);
-
-        Transaction tx = Transaction.builder()
-                .id(UUID.randomUUID())
-                .account(account)
-                .type("WITHDRAW")
-                .amount(amount)
-                .balanceAfter(newBalance)
-                .status("COMPLETED")
-                .createdAt(OffsetDateTime.now())
-                .build();
-
-        transactionRepository.save(tx);
-        auditService.log(
-    "WITHDRAW",
-    account.getCustomer().getId(),
-    tx.getId(),
-    null,
-    Map.of(
-        "accountId", accountId,
-        "amount", amount,
-        "balanceAfter", newBalance
-    )
-);
+        return idempotent(idempKey, () -> {
+            BigDecimal amount = req.getAmount();
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                throw new BadRequestException("Withdraw amount must be greater than 0");
+            }
 
+            return execute(Posting.withdraw(accountId, amount), idempKey);
+        });
+    }
 
-        TransactionResponse resp = toResponse(tx);
+    // ---------- Transfer ----------
+    public TransactionResponse transfer(TransferRequest req, String idempKey) {
+        return idempotent(idempKey, () -> {
+            if (req.getFromAccountId() == null || req.getToAccountId() == null) {
+                throw new BadRequestException("Both fromAccountId and toAccountId are required");
+            }
+            if (req.getFromAccountId().equals(req.getToAccountId())) {
+                throw new BadRequestException("From and To accounts must differ");
+            }
 
-        if (idempKey != null) idempotencyService.save(idempKey, resp);
+            BigDecimal amount = req.getAmount();
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                throw new BadRequestException("Transfer amount must be greater than 0");
+            }
 
-        return resp;
+            return execute(Posting.transfer(req.getFromAccountId(), req.getToAccountId(), amount, req.getReferenceId()), idempKey);
+        });
     }
 
-    // ---------- Transfer ----------
-    @Transactional
-    public TransactionResponse transfer(TransferRequest req, String idempKey) {
-        // idempotency check
-        if (idempKey != null) {
-            TransactionResponse cached = idempotencyService.getIfExists(idempKey, TransactionResponse.class);
-            if (cached != null) return cached;
+    // ---------- Idempotency ----------
+
+    /**
+     * Runs the request at most once per key: replays a stored response, waits for a concurrent
+     * request holding the same key, or claims the key and runs {@code work}. A posting still in
+     * doubt keeps the key reserved until its real outcome settles the claim.
+     */
+    private TransactionResponse idempotent(String idempKey, Supplier<TransactionResponse> work) {
+        if (idempKey == null) return work.get();
+
+        IdempotencyService.Claim claim = idempotencyService.claim(idempKey);
+        if (claim.isReplay()) return claim.replay(TransactionResponse.class);
+        try {
+            TransactionResponse resp = work.get();
+            claim.succeeded(resp);
+            return resp;
+        } catch (PostingInDoubtException ex) {
+            if (ex.getOutcome() == null) {
+                claim.inDoubt(ex);
+            } else {
+                ex.getOutcome().whenComplete((resp, err) -> {
+                    if (err == null) {
+                        claim.succeeded(resp);
+                        return;
+                    }
+                    Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                    if (cause instanceof PostingInDoubtException doubt) claim.inDoubt(doubt);
+                    else claim.failed(cause instanceof RuntimeException re ? re : new IllegalStateException(cause));
+                });
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            claim.failed(ex);
+            throw ex;
         }
+    }
 
-        if (req.getFromAccountId() == null || req.getToAccountId() == null) {
-            throw new BadRequestException("Both fromAccountId and toAccountId are required");
+    // ---------- Posting ----------
+
+    /**
+     * Routes a validated posting to the active write path, then records audit and idempotency.
+     * The direct path keeps posting, audit row and idempotency row in one transaction; the
+     * engine and group-commit paths must not hold a connection while they wait for their writer.
+     * Only the direct path is retried on conflicts: its transaction is the whole unit of work.
+     */
+    private TransactionResponse execute(Posting p, String idempKey) {
+        if (ledgerEngine.isEnabled()) {
+            return completeWhenSettled(p, () -> ledgerEngine.post(p), idempKey, true);
         }
-        if (req.getFromAccountId().equals(req.getToAccountId())) {
-            throw new BadRequestException("From and To accounts must differ");
+        if (postingBatcher.isEnabled()) {
+            // the batcher already wrote the audit row in its own commit
+            return completeWhenSettled(p, () -> postingBatcher.post(p), idempKey, false);
         }
+        return conflictRetry.run(accountsOf(p), () -> txTemplate.execute(status -> complete(p, applyDirect(p), idempKey, true)));
+    }
 
-        BigDecimal amount = req.getAmount();
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BadRequestException("Transfer amount must be greater than 0");
+    // a posting that outlived the caller's wait still gets its audit and idempotency rows once it lands
+    @SuppressWarnings("unchecked")
+    private TransactionResponse completeWhenSettled(Posting p, Supplier<PostingResult> post, String idempKey, boolean audit) {
+        try {
+            return complete(p, post.get(), idempKey, audit);
+        } catch (PostingInDoubtException ex) {
+            if (ex.getOutcome() == null) throw ex;
+            CompletableFuture<PostingResult> outcome = (CompletableFuture<PostingResult>) ex.getOutcome();
+            throw new PostingInDoubtException(ex.getMessage(),
+                    outcome.thenApplyAsync(r -> complete(p, r, idempKey, audit)));
         }
+    }
 
-        Account from = accountRepository.findById(req.getFromAccountId())
-                .orElseThrow(() -> new NotFoundException("Source account not found: " + req.getFromAccountId()));
-        Account to = accountRepository.findById(req.getToAccountId())
-                .orElseThrow(() -> new NotFoundException("Destination account not found: " + req.getToAccountId()));
+    static List<UUID> accountsOf(Posting p) {
+        return p.getCounterpartyId() != null ? List.of(p.getAccountId(), p.getCounterpartyId()) : List.of(p.getAccountId());
+    }
 
-        BigDecimal fromBal = from.getBalance() == null ? BigDecimal.ZERO : from.getBalance();
-        if (fromBal.compareTo(amount) < 0) {
-            throw new BadRequestException("Insufficient balance in source account");
+    private TransactionResponse complete(Posting p, PostingResult r, String idempKey, boolean audit) {
+        TransactionResponse resp = r.getResponse();
+        if (audit) {
+            auditService.log(auditAction(p), r.getOwnerId(), resp.getId(), null, auditDetails(p, resp));
         }
+        if (idempKey != null) idempotencyService.save(idempKey, resp);
+        return resp;
+    }
 
-        // debit source
-        BigDecimal fromNew = fromBal.subtract(amount);
-        from.setBalance(fromNew);
-        accountRepository.save(from);
-
-        // credit destination
-        BigDecimal toBal = to.getBalance() == null ? BigDecimal.ZERO : to.getBalance();
-        BigDecimal toNew = toBal.add(amount);
-        to.setBalance(toNew);
-        accountRepository.save(to);
-
-        // create two transaction records (transfer out + transfer in)
-        Transaction outTx = Transaction.builder()
-                .id(UUID.randomUUID())
-                .account(from)
-                .referenceId(req.getReferenceId()) // may be null
-                .type("TRANSFER_OUT")
-                .amount(amount)
-                .balanceAfter(fromNew)
-                .status("COMPLETED")
-                .createdAt(OffsetDateTime.now())
-                .build();
-        transactionRepository.save(outTx);
-        auditService.log(
-    "TRANSFER",
-    from.getCustomer().getId(),
-    outTx.getId(),
-    null,
-    Map.of(
-        "fromAccountId", req.getFromAccountId(),
-        "toAccountId", req.getToAccountId(),
-        "amount", amount,
-        "referenceId", req.getReferenceId()
-    )
-);
-
-
-        Transaction inTx = Transaction.builder()
-                .id(UUID.randomUUID())
-                .account(to)
-                .referenceId(req.getReferenceId())
-                .type("TRANSFER_IN")
-                .amount(amount)
-                .balanceAfter(toNew)
-                .status("COMPLETED")
-                .createdAt(OffsetDateTime.now())
-                .build();
-        transactionRepository.save(inTx);
-
-        auditService.log(
-    "TRANSFER",
-    from.getCustomer().getId(),
-    outTx.getId(),
-    null,
-    Map.of(
-        "fromAccountId", req.getFromAccountId(),
-        "toAccountId", req.getToAccountId(),
-        "amount", amount,
-        "referenceId", req.getReferenceId()
-    )
-);
-
-
-        TransactionResponse resp = toResponse(outTx);
+    static String auditAction(Posting p) {
+        return p.getType().name();
+    }
 
-        if (idempKey != null) idempotencyService.save(idempKey, resp);
+    static Map<String, Object> auditDetails(Posting p, TransactionResponse resp) {
+        // referenceId is optional, so this cannot be a Map.of(...)
+        Map<String, Object> details = new HashMap<>();
+        if (p.getType() == Posting.Type.TRANSFER) {
+            details.put("fromAccountId", p.getAccountId());
+            details.put("toAccountId", p.getCounterpartyId());
+            details.put("amount", p.getAmount());
+            details.put("referenceId", p.getReferenceId());
+        } else {
+            details.put("accountId", p.getAccountId());
+            details.put("amount", p.getAmount());
+            details.put("balanceAfter", resp.getBalanceAfter());
+        }
+        return details;
+    }
 
-        return resp;
+    /**
+     * Applies a posting through {@link JdbcPostingWriter}: guarded single-statement balance
+     * updates, transfers locked in {@link #LOCK_ORDER}, striped accounts through
+     * {@link BalanceStripes}. Must run inside a transaction: a failed debit after a successful
+     * credit is rolled back. The audit row is left to {@link #complete}.
+     */
+    PostingResult applyDirect(Posting p) {
+        JdbcPostingWriter.Rows rows = new JdbcPostingWriter.Rows();
+        PostingResult r = postingWriter.post(p, rows);
+        postingWriter.flush(rows);
+        return r;
     }
 
+    /**
+     * Lock order for account rows: unsigned byte order of the BINARY(16) key, i.e. the order
+     * of the primary key index.
+     */
+    static final Comparator<UUID> LOCK_ORDER = (a, b) -> {
+        int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
     // ---------- List ----------
+    @Transactional(readOnly = true)
     public List<TransactionResponse> listForAccount(UUID accountId) {
-        return transactionRepository.findByAccountIdOrderByCreatedAtDesc(accountId)
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return transactionRepository.findResponsesByAccountId(accountId);
     }
 
+    @Transactional(readOnly = true)
     public Page<TransactionResponse> listForAccountPaged(UUID accountId,
                                                     int page,
                                                     int size,
@@ -301,88 +287,92 @@ public class TransactionService {
 
     Specification<Transaction> spec = TransactionSpecification.build(accountId, type, from, to);
 
-    Page<Transaction> txPage = transactionRepository.findAll(spec, pageable);
+    List<TransactionResponse> content = selectResponses(spec, sortObj, (int) pageable.getOffset(), pageable.getPageSize());
 
-    return txPage.map(this::toResponse);
+    // the COUNT is skipped when the first page already holds everything
+    return PageableExecutionUtils.getPage(content, pageable, () -> transactionRepository.count(spec));
 }
 
-    // ---------- Mapper ----------
-    private TransactionResponse toResponse(Transaction tx) {
-        return TransactionResponse.builder()
-                .id(tx.getId())
-                .accountId(tx.getAccount() != null ? tx.getAccount().getId() : null)
-                .referenceId(tx.getReferenceId())
-                .type(tx.getType())
-                .amount(tx.getAmount())
-                .balanceAfter(tx.getBalanceAfter())
-                .status(tx.getStatus())
-                .createdAt(tx.getCreatedAt())
-                .build();
-    }
-    public TransactionSummaryResponse getSummary(UUID accountId, String fromIso, String toIso) {
-    // fetch all transactions for account (use existing repo convenience method)
-    List<Transaction> all = transactionRepository.findByAccountIdOrderByCreatedAtDesc(accountId);
+    /**
+     * Keyset variant of {@link #listForAccountPaged}: newest first, continuing after the row encoded
+     * in {@code cursor} (null or blank for the first slice). Reads size + 1 rows from the
+     * (account_id, created_at, id) index and never runs a COUNT, so every slice costs the same.
+     */
+    @Transactional(readOnly = true)
+    public TransactionSliceResponse listForAccountAfter(UUID accountId,
+                                                        String cursor,
+                                                        int size,
+                                                        String type,
+                                                        String fromIso,
+                                                        String toIso) {
+        int limit = Math.min(Math.max(1, size), MAX_SLICE_SIZE);
+        Specification<Transaction> spec = TransactionSpecification.build(accountId, type, parseDate(fromIso), parseDate(toIso));
+        if (cursor != null && !cursor.isBlank()) {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            spec = spec.and(TransactionSpecification.before(after.getCreatedAt(), after.getId()));
+        }
 
-    // parse date filters (null safe)
-    OffsetDateTime from = null;
-    OffsetDateTime to = null;
-    try {
-        if (fromIso != null && !fromIso.isBlank()) from = OffsetDateTime.parse(fromIso);
-    } catch (DateTimeParseException ignored) {}
-    try {
-        if (toIso != null && !toIso.isBlank()) to = OffsetDateTime.parse(toIso);
-    } catch (DateTimeParseException ignored) {}
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+        List<TransactionResponse> rows = selectResponses(spec, newestFirst, 0, limit + 1);
 
-    // filter by date range if provided
-    final OffsetDateTime finalFrom = from;
-    final OffsetDateTime finalTo = to;
-    List<Transaction> filtered = all.stream()
-            .filter(tx -> {
-                OffsetDateTime created = tx.getCreatedAt();
-                if (created == null) return false;
-                if (finalFrom != null && created.isBefore(finalFrom)) return false;
-                if (finalTo != null && created.isAfter(finalTo)) return false;
-                return true;
-            })
-            .collect(Collectors.toList());
-
-    BigDecimal totalDeposits = BigDecimal.ZERO;
-    BigDecimal totalWithdrawals = BigDecimal.ZERO;
-    Map<String, Long> byType = new HashMap<>();
-
-    for (Transaction tx : filtered) {
-        // amount handling: Transaction.amount may be BigDecimal or Double; handle both
-        BigDecimal amt;
-        Object raw = tx.getAmount();
-        if (raw instanceof BigDecimal) {
-            amt = (BigDecimal) raw;
-        } else if (raw instanceof Number) {
-            amt = BigDecimal.valueOf(((Number) raw).doubleValue());
-        } else {
-            // fallback: try toString
-            try {
-                amt = new BigDecimal(String.valueOf(raw));
-            } catch (Exception e) {
-                amt = BigDecimal.ZERO;
-            }
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) rows = rows.subList(0, limit);
+        String next = null;
+        if (hasNext) {
+            TransactionResponse last = rows.get(rows.size() - 1);
+            next = new TransactionCursor(last.getCreatedAt(), last.getId()).encode();
         }
 
-        String type = tx.getType() != null ? tx.getType().toUpperCase() : "UNKNOWN";
-        byType.put(type, byType.getOrDefault(type, 0L) + 1L);
+        return TransactionSliceResponse.builder()
+                .content(rows)
+                .size(limit)
+                .hasNext(hasNext)
+                .nextCursor(next)
+                .build();
+    }
 
-        if ("DEPOSIT".equals(type) || "TRANSFER_IN".equals(type)) {
-            totalDeposits = totalDeposits.add(amt);
-        } else if ("WITHDRAW".equals(type) || "TRANSFER_OUT".equals(type)) {
-            totalWithdrawals = totalWithdrawals.add(amt);
-        } else if ("TRANSFER".equals(type)) {
-            // if you use "TRANSFER" as single type, decide if it's debit or credit;
-            // we assume transfer recorded on source as TRANSFER or TRANSFER_OUT and on dest as TRANSFER_IN.
+    /**
+     * Selects the response columns directly (no entities, no account proxies), in the given order.
+     */
+    private List<TransactionResponse> selectResponses(Specification<Transaction> spec, Sort sort, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransactionResponse> cq = cb.createQuery(TransactionResponse.class);
+        Root<Transaction> root = cq.from(Transaction.class);
+        cq.select(cb.construct(TransactionResponse.class, root.get("id"), root.get("account").get("id"),
+                root.get("referenceId"), root.get("type"), root.get("amount"), root.get("balanceAfter"),
+                root.get("status"), root.get("createdAt")));
+        Predicate where = spec.toPredicate(root, cq, cb);
+        if (where != null) cq.where(where);
+        cq.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(cq)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static OffsetDateTime parseDate(String iso) {
+        if (iso == null || iso.isBlank()) return null;
+        try {
+            return OffsetDateTime.parse(iso);
+        } catch (DateTimeParseException ignored) {
+            return null;
         }
     }
 
-    BigDecimal netFlow = totalDeposits.subtract(totalWithdrawals);
-    long count = filtered.size();
+    // Whole days come from daily_account_rollups; only the partial edge days are read from raw rows
+    @Transactional(readOnly = true)
+    public TransactionSummaryResponse getSummary(UUID accountId, String fromIso, String toIso) {
+        return dailyRollupService.summarize(accountId, parseDate(fromIso), parseDate(toIso));
+    }
 
-    return new TransactionSummaryResponse(accountId, totalDeposits, totalWithdrawals, netFlow, count, byType);
-}
+    @Transactional(readOnly = true)
+    public TransactionSeriesResponse getSeries(UUID accountId, String granularity, String fromDate, String toDate) {
+        try {
+            LocalDate from = fromDate != null && !fromDate.isBlank() ? LocalDate.parse(fromDate) : null;
+            LocalDate to = toDate != null && !toDate.isBlank() ? LocalDate.parse(toDate) : null;
+            return dailyRollupService.series(accountId, granularity, from, to);
+        } catch (DateTimeParseException ex) {
+            throw new BadRequestException("from/to must be ISO dates (yyyy-MM-dd)");
+        }
+    }
 }
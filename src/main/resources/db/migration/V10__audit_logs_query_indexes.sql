@@ -0,0 +1,5 @@
+-- V10: composite indexes for the admin audit search; InnoDB appends the primary key (id),
+-- so each one also serves the (created_at, id) keyset order within its filter
+CREATE INDEX idx_audit_logs_user_created ON audit_logs (user_id, created_at);
+CREATE INDEX idx_audit_logs_entity_created ON audit_logs (entity_id, created_at);
+CREATE INDEX idx_audit_logs_action_created ON audit_logs (action, created_at);
@@ -0,0 +1,3 @@
+-- V11: the stateless-auth revocation refresh polls disabled users and recently changed rows
+CREATE INDEX idx_auth_users_enabled ON auth_users (enabled);
+CREATE INDEX idx_auth_users_updated ON auth_users (updated_at);
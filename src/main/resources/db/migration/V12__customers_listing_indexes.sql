@@ -0,0 +1,8 @@
+-- V12: keyset listing of customers newest first, optionally by email domain.
+-- email_domain is derived by MySQL so it cannot drift from email; InnoDB appends the primary
+-- key (id), so both indexes also serve the (created_at, id) order within their filter
+ALTER TABLE customers
+  ADD COLUMN email_domain VARCHAR(255) GENERATED ALWAYS AS (LOWER(SUBSTRING_INDEX(email, '@', -1))) STORED;
+
+CREATE INDEX idx_customers_created ON customers (created_at);
+CREATE INDEX idx_customers_email_domain_created ON customers (email_domain, created_at);
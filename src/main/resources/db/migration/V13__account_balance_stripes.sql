@@ -0,0 +1,14 @@
+-- V13: striped accounts. A hot account's credits land on one of stripe_count sub-balance rows
+-- instead of its accounts row; its balance is accounts.balance plus the sum of its stripes
+ALTER TABLE accounts ADD COLUMN stripe_count INT NOT NULL DEFAULT 0;
+
+-- the consolidation job only visits striped accounts
+CREATE INDEX idx_accounts_stripe_count ON accounts (stripe_count);
+
+CREATE TABLE account_balance_stripes (
+  account_id BINARY(16) NOT NULL,
+  stripe INT NOT NULL,
+  balance DECIMAL(18,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (account_id, stripe),
+  CONSTRAINT fk_stripe_account FOREIGN KEY (account_id) REFERENCES accounts(id)
+);
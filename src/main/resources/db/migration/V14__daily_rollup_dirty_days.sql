@@ -0,0 +1,5 @@
+-- V14: already rolled-up days that received late rows (ledger engine flush backlog, journal
+-- recovery); the rollup job re-rolls them before advancing its watermark
+CREATE TABLE daily_rollup_dirty_days (
+    day DATE NOT NULL PRIMARY KEY
+);
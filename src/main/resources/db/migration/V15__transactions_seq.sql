@@ -0,0 +1,8 @@
+-- V15: insertion order of transactions. created_at has second precision and ids are not
+-- ordered across nodes (or at all, for random ids), so "last posting at or before T" breaks
+-- ties on seq. Rows of one account are inserted under its row lock (or by its single ledger
+-- flusher), so per account seq follows the order balances were applied. Existing rows are
+-- numbered in primary key order.
+ALTER TABLE transactions ADD COLUMN seq BIGINT NOT NULL AUTO_INCREMENT, ADD UNIQUE KEY uk_transactions_seq (seq);
+
+CREATE INDEX idx_transactions_account_created_seq ON transactions (account_id, created_at, seq);
@@ -0,0 +1,3 @@
+-- V16: version of the ledger engine row whose balance accounts.balance holds (see LedgerFlusher).
+-- The flusher receives one account's rows out of order and only writes a balance over an older one.
+ALTER TABLE accounts ADD COLUMN ledger_version BIGINT NOT NULL DEFAULT 0;
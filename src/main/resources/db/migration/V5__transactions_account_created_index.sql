@@ -0,0 +1,2 @@
+-- V5: composite index for keyset paging of an account's history (account_id, created_at, id)
+CREATE INDEX idx_transactions_account_created ON transactions (account_id, created_at, id);
@@ -0,0 +1,20 @@
+-- V6: per-account daily rollups (UTC days), filled by the catch-up job in DailyRollupService
+CREATE TABLE daily_account_rollups (
+    account_id BINARY(16) NOT NULL,
+    day DATE NOT NULL,
+    type VARCHAR(30) NOT NULL,
+    tx_count BIGINT NOT NULL,
+    total_amount DECIMAL(20,2) NOT NULL,
+    PRIMARY KEY (account_id, day, type),
+    KEY idx_rollups_day (day)
+);
+
+-- last day folded into daily_account_rollups (NULL until the first run)
+CREATE TABLE daily_rollup_state (
+    id TINYINT NOT NULL PRIMARY KEY,
+    rolled_through DATE
+);
+INSERT INTO daily_rollup_state (id, rolled_through) VALUES (1, NULL);
+
+-- the job aggregates one day of all accounts at a time
+CREATE INDEX idx_transactions_created ON transactions (created_at);
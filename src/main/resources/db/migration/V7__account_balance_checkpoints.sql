@@ -0,0 +1,8 @@
+-- V7: per-account closing balance of each UTC day with postings, written by the daily rollup job
+CREATE TABLE account_balance_checkpoints (
+    account_id BINARY(16) NOT NULL,
+    day DATE NOT NULL,
+    closing_balance DECIMAL(18,2) NOT NULL,
+    PRIMARY KEY (account_id, day),
+    KEY idx_checkpoints_day (day)
+);
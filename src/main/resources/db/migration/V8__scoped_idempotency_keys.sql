@@ -0,0 +1,11 @@
+-- V8: idempotency keys become fixed-width SHA-256 hex digests of (customer id, client key).
+-- Existing rows were not customer-scoped and cannot be re-keyed; they only matter for retries
+-- within the replay window, so the table is recreated.
+DROP TABLE idempotency_keys;
+
+CREATE TABLE idempotency_keys (
+    id CHAR(64) CHARACTER SET ascii NOT NULL PRIMARY KEY,
+    response_json TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_idempotency_created (created_at)
+);
@@ -0,0 +1,4 @@
+-- V9: idempotency keys are reserved (IN_PROGRESS, no response yet) before the request runs
+ALTER TABLE idempotency_keys
+    ADD COLUMN status VARCHAR(12) NOT NULL DEFAULT 'COMPLETED' AFTER id,
+    MODIFY response_json TEXT NULL;
@@ -0,0 +1,114 @@
+package com.rohitsurya2809.vaultedge.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.dto.DepositRequest;
+import com.rohitsurya2809.vaultedge.dto.TransferRequest;
+import com.rohitsurya2809.vaultedge.repository.StatementCountTest;
+import com.rohitsurya2809.vaultedge.service.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * save() of an entity with a Java-assigned id must be a plain INSERT, not merge's SELECT + INSERT,
+ * and the postings that create transactions must not pay for one either.
+ */
+@Import({TransactionService.class, IdempotencyService.class, AuditService.class, LedgerEngine.class,
+        PostingBatcher.class, DailyRollupService.class, ConflictRetry.class, JdbcPostingWriter.class,
+        BalanceStripes.class, AccountDirectory.class, AssignedIdEntityTest.Beans.class})
+@TestPropertySource(properties = "rollups.enabled=false")
+class AssignedIdEntityTest extends StatementCountTest {
+
+    @TestConfiguration
+    static class Beans {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Test
+    void saveOfNewEntitiesOnlyInserts() {
+        Customer customer = newCustomer("Test Customer", "new@example.com");
+        Account account = newAccount(customer, "ACC-NEW-1", BigDecimal.ZERO);
+        transactions.save(Transaction.builder()
+                .id(Ids.next())
+                .account(account)
+                .type("DEPOSIT")
+                .amount(BigDecimal.TEN)
+                .status("COMPLETED")
+                .build());
+        em.flush();
+
+        assertThat(stats.getEntityLoadCount()).isZero();
+        assertThat(stats.getEntityInsertCount()).isEqualTo(3);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statements()).hasSize(3).allMatch(sql -> sql.startsWith("insert"));
+    }
+
+    @Test
+    void loadedEntityIsSavedAsAnUpdate() {
+        Customer customer = newCustomer("Test Customer", "loaded@example.com");
+        startCounting();
+
+        Customer loaded = customers.findById(customer.getId()).orElseThrow();
+        assertThat(loaded.isNew()).isFalse();
+        loaded.setPhone("555-0100");
+        customers.save(loaded);
+        em.flush();
+
+        assertThat(stats.getEntityInsertCount()).isZero();
+        assertThat(stats.getEntityUpdateCount()).isEqualTo(1);
+    }
+
+    @Test
+    void depositDoesNotReadBeforeItInserts() {
+        Customer customer = newCustomer("Test Customer", "deposit@example.com");
+        Account account = newAccount(customer, "ACC-DEP-1", BigDecimal.ZERO);
+        startCounting();
+
+        transactionService.deposit(account.getId(), DepositRequest.builder().amount(BigDecimal.TEN).build(), null);
+
+        // stripe count (a cache miss for a new account), balance update, read-back, one INSERT
+        assertThat(statements()).hasSize(4);
+        assertThat(statements()).filteredOn(sql -> sql.startsWith("INSERT")).hasSize(1);
+        assertThat(statements()).noneMatch(sql -> sql.contains("FROM transactions"));
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void transferWritesBothLegsInOneBatch() {
+        Customer customer = newCustomer("Test Customer", "transfer@example.com");
+        Account from = newAccount(customer, "ACC-TRF-1", BigDecimal.TEN);
+        Account to = newAccount(customer, "ACC-TRF-2", BigDecimal.ZERO);
+        startCounting();
+
+        transactionService.transfer(TransferRequest.builder()
+                .fromAccountId(from.getId()).toAccountId(to.getId()).amount(BigDecimal.ONE).build(), null);
+
+        // per leg: stripe count, balance update, read-back; then one batched INSERT of both rows
+        assertThat(statements()).hasSize(7);
+        assertThat(statements()).filteredOn(sql -> sql.startsWith("INSERT")).hasSize(1);
+        assertThat(statements()).noneMatch(sql -> sql.contains("FROM transactions"));
+        assertThat(stats.getEntityLoadCount()).isZero();
+        assertThat(transactions.count()).isEqualTo(2);
+    }
+}
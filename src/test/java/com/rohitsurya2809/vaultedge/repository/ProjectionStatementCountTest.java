@@ -0,0 +1,79 @@
+package com.rohitsurya2809.vaultedge.repository;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import com.rohitsurya2809.vaultedge.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The account and transaction read projections must stay one statement however many rows they
+ * return: no lazy customer loads (N+1) and no entity hydration.
+ */
+class ProjectionStatementCountTest extends StatementCountTest {
+
+    private static final int ACCOUNTS = 5;
+    private static final int TRANSACTIONS_PER_ACCOUNT = 3;
+
+    private Customer customer;
+    private List<Account> saved;
+
+    @BeforeEach
+    void setUp() {
+        customer = newCustomer("Projection Owner", "owner@example.com");
+        saved = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = newAccount(customer, "ACC-PROJ-" + i, BigDecimal.ZERO);
+            for (int j = 0; j < TRANSACTIONS_PER_ACCOUNT; j++) {
+                transactions.save(Transaction.builder()
+                        .id(Ids.next())
+                        .account(account)
+                        .type("DEPOSIT")
+                        .amount(BigDecimal.TEN)
+                        .status("COMPLETED")
+                        .build());
+            }
+            saved.add(account);
+        }
+        startCounting();
+    }
+
+    @Test
+    void accountViewsOfACustomerAreOneStatement() {
+        List<AccountRepository.AccountView> views = accounts.findViewsByCustomerId(customer.getId());
+
+        assertThat(views).hasSize(ACCOUNTS);
+        assertThat(views).allSatisfy(v -> assertThat(v.getCustomerEmail()).isEqualTo("owner@example.com"));
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statements()).hasSize(1);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void accountViewByIdIsOneStatement() {
+        AccountRepository.AccountView view = accounts.findViewById(saved.get(0).getId()).orElseThrow();
+
+        assertThat(view.getCustomerFullName()).isEqualTo("Projection Owner");
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statements()).hasSize(1);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void transactionResponsesAreOneStatement() {
+        List<TransactionResponse> rows = transactions.findResponsesByAccountId(saved.get(0).getId());
+
+        assertThat(rows).hasSize(TRANSACTIONS_PER_ACCOUNT);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statements()).hasSize(1);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+}
@@ -0,0 +1,129 @@
+package com.rohitsurya2809.vaultedge.repository;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import jakarta.persistence.EntityManager;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared fixture of the statement-count tests: an H2 {@code @DataJpaTest} whose DataSource records
+ * every statement sent to the database (a JDBC batch counts once), whether it came from Hibernate or
+ * from a JdbcTemplate, next to Hibernate's own statistics.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StatementCountTest.StatementRecorder.class)
+public abstract class StatementCountTest {
+
+    @Autowired
+    protected CustomerRepository customers;
+
+    @Autowired
+    protected AccountRepository accounts;
+
+    @Autowired
+    protected TransactionRepository transactions;
+
+    @Autowired
+    protected EntityManager em;
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    protected Statistics stats;
+
+    @BeforeEach
+    void resetStatistics() {
+        stats = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        recorder.clear();
+    }
+
+    /** Writes the fixture built so far and starts counting from zero with an empty session. */
+    protected void startCounting() {
+        em.flush();
+        em.clear();
+        stats.clear();
+        recorder.clear();
+    }
+
+    /** SQL of the statements executed since counting started, in order. */
+    protected List<String> statements() {
+        return recorder.statements();
+    }
+
+    protected Customer newCustomer(String fullName, String email) {
+        return customers.save(Customer.builder()
+                .fullName(fullName)
+                .email(email)
+                .password("secret")
+                .build());
+    }
+
+    protected Account newAccount(Customer customer, String number, BigDecimal balance) {
+        return accounts.save(Account.builder()
+                .id(Ids.next())
+                .customer(customer)
+                .accountNumber(number)
+                .accountType("SAVINGS")
+                .currency("INR")
+                .balance(balance)
+                .status("ACTIVE")
+                .build());
+    }
+
+    /** Wraps the DataSource so that every executed statement is recorded. */
+    static class StatementRecorder implements BeanPostProcessor, QueryExecutionListener {
+
+        private final List<String> executed = new ArrayList<>();
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) return bean;
+            return ProxyDataSourceBuilder.create(dataSource).listener(this).build();
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            synchronized (executed) {
+                executed.add(queryInfoList.get(0).getQuery());
+            }
+        }
+
+        List<String> statements() {
+            synchronized (executed) {
+                return List.copyOf(executed);
+            }
+        }
+
+        void clear() {
+            synchronized (executed) {
+                executed.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.BatchItemResult;
+import com.rohitsurya2809.vaultedge.dto.BatchResponse;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import com.rohitsurya2809.vaultedge.repository.AccountRepository;
+import com.rohitsurya2809.vaultedge.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batches that mix deposits, withdrawals and transfers. {@code low} sorts before {@code high} in
+ * {@link TransactionService#LOCK_ORDER}, so a transfer from high to low credits low first and
+ * has a leg to undo when its debit fails.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchTransactionServiceTest {
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    @Autowired
+    private BatchTransactionService batches;
+
+    @Autowired
+    private CustomerRepository customers;
+
+    @Autowired
+    private AccountRepository accounts;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    private UUID owner;
+    private UUID low;
+    private UUID high;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customers.save(Customer.builder()
+                .fullName("Batch Owner")
+                .email("batch-" + UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .build());
+        owner = customer.getId();
+        UUID a = newAccount(customer);
+        UUID b = newAccount(customer);
+        low = TransactionService.LOCK_ORDER.compare(a, b) < 0 ? a : b;
+        high = low.equals(a) ? b : a;
+        jdbc.update("UPDATE accounts SET balance = 100 WHERE id = ?", (Object) UUIDS.convertToDatabaseColumn(low));
+    }
+
+    @Test
+    void bestEffortCommitsTheChunkAroundAFailedTransfer() throws Exception {
+        BatchResponse resp = execute("BEST_EFFORT",
+                deposit(low, "10"),
+                transfer(low, high, "30"),
+                transfer(high, low, "500"),
+                Map.of("type", "WITHDRAW", "accountId", high, "amount", "5"),
+                transfer(high, low, "5"));
+
+        assertThat(resp.isCommitted()).isTrue();
+        assertThat(resp.getResults()).extracting(BatchItemResult::getStatus)
+                .containsExactly("SUCCESS", "SUCCESS", "FAILED", "SUCCESS", "SUCCESS");
+        assertThat(balance(low)).isEqualByComparingTo("85.00");
+        assertThat(balance(high)).isEqualByComparingTo("20.00");
+        assertThat(rows(low)).isEqualTo(3);
+        assertThat(rows(high)).isEqualTo(3);
+    }
+
+    @Test
+    void allOrNothingCommitsDepositsAndTransfers() throws Exception {
+        BatchResponse resp = execute("ALL_OR_NOTHING",
+                deposit(low, "10"),
+                transfer(low, high, "20"),
+                deposit(high, "1"));
+
+        assertThat(resp.isCommitted()).isTrue();
+        assertThat(resp.getSucceeded()).isEqualTo(3);
+        assertThat(balance(low)).isEqualByComparingTo("90.00");
+        assertThat(balance(high)).isEqualByComparingTo("21.00");
+    }
+
+    @Test
+    void allOrNothingRollsBackOnAFailedTransfer() throws Exception {
+        BatchResponse resp = execute("ALL_OR_NOTHING",
+                deposit(high, "10"),
+                transfer(high, low, "500"));
+
+        assertThat(resp.isCommitted()).isFalse();
+        assertThat(resp.getResults()).extracting(BatchItemResult::getStatus)
+                .containsExactly("ROLLED_BACK", "FAILED");
+        assertThat(balance(low)).isEqualByComparingTo("100.00");
+        assertThat(balance(high)).isEqualByComparingTo("0.00");
+        assertThat(rows(low) + rows(high)).isZero();
+    }
+
+    @Test
+    void itemKeyHeldByAnotherRequestIsNotPosted() throws Exception {
+        IdempotencyService.Claim held = idempotencyService.claim(idempotencyService.scope(owner, "held"));
+        try {
+            BatchResponse resp = execute("BEST_EFFORT",
+                    keyed(deposit(high, "10"), "held"),
+                    keyed(deposit(low, "5"), "free"));
+
+            assertThat(resp.getResults()).extracting(BatchItemResult::getStatus).containsExactly("FAILED", "SUCCESS");
+            assertThat(rows(high)).isZero();
+            assertThat(balance(low)).isEqualByComparingTo("105.00");
+        } finally {
+            held.failed(new IllegalStateException("test done"));
+        }
+    }
+
+    @Test
+    void rerunOfAKeyedBatchReplaysEveryItem() throws Exception {
+        Map<?, ?>[] items = {keyed(deposit(high, "10"), "deposit-1"), keyed(transfer(low, high, "20"), "transfer-1")};
+        execute("BEST_EFFORT", items);
+        BatchResponse rerun = execute("BEST_EFFORT", items);
+
+        assertThat(rerun.getResults()).extracting(BatchItemResult::getStatus).containsExactly("REPLAYED", "REPLAYED");
+        assertThat(balance(low)).isEqualByComparingTo("80.00");
+        assertThat(balance(high)).isEqualByComparingTo("30.00");
+    }
+
+    private BatchResponse execute(String mode, Map<?, ?>... items) throws Exception {
+        byte[] body = objectMapper.writeValueAsBytes(List.of(items));
+        return batches.execute(new ByteArrayInputStream(body), mode, owner);
+    }
+
+    private static Map<String, Object> deposit(UUID accountId, String amount) {
+        return Map.of("type", "DEPOSIT", "accountId", accountId, "amount", amount);
+    }
+
+    private static Map<String, Object> transfer(UUID from, UUID to, String amount) {
+        return Map.of("type", "TRANSFER", "fromAccountId", from, "toAccountId", to, "amount", amount);
+    }
+
+    private static Map<String, Object> keyed(Map<String, Object> item, String idempotencyKey) {
+        Map<String, Object> withKey = new HashMap<>(item);
+        withKey.put("idempotencyKey", idempotencyKey);
+        return withKey;
+    }
+
+    private UUID newAccount(Customer customer) {
+        return accounts.save(Account.builder()
+                .id(Ids.next())
+                .customer(customer)
+                .accountNumber("ACC-" + UUID.randomUUID().toString().substring(0, 20))
+                .accountType("SAVINGS")
+                .currency("INR")
+                .balance(BigDecimal.ZERO)
+                .status("ACTIVE")
+                .build()).getId();
+    }
+
+    private BigDecimal balance(UUID accountId) {
+        return jdbc.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class,
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+
+    private int rows(UUID accountId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM transactions WHERE account_id = ?", Integer.class,
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+}
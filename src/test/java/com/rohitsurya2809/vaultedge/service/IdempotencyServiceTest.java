@@ -0,0 +1,102 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Single flight and storage of idempotent responses. Runs outside a test transaction, since the
+ * reservation and the stored response must be visible across threads.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({IdempotencyService.class, IdempotencyServiceTest.Beans.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    private static final int DUPLICATES = 100;
+
+    @TestConfiguration
+    static class Beans {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private IdempotencyService idempotency;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void parallelDuplicatesExecuteOnce() throws Exception {
+        String key = idempotency.scope(UUID.randomUUID(), "same-key");
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(DUPLICATES);
+        List<Future<Map<?, ?>>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < DUPLICATES; i++) {
+                responses.add(pool.submit(() -> {
+                    start.await();
+                    IdempotencyService.Claim claim = idempotency.claim(key);
+                    if (claim.isReplay()) return claim.replay(Map.class);
+                    Map<String, Object> resp = Map.of("execution", executions.incrementAndGet());
+                    Thread.sleep(50);
+                    tx.executeWithoutResult(status -> idempotency.save(key, resp));
+                    claim.succeeded(resp);
+                    return resp;
+                }));
+            }
+            start.countDown();
+            for (Future<Map<?, ?>> r : responses) {
+                assertThat(r.get(30, TimeUnit.SECONDS)).isEqualTo(Map.of("execution", 1));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void saveFailureIsThrown() {
+        String key = idempotency.scope(UUID.randomUUID(), "unserializable");
+
+        // Jackson refuses beans without properties
+        assertThatThrownBy(() -> idempotency.save(key, new Object()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(idempotency.getSerialized(key)).isNull();
+    }
+}
@@ -0,0 +1,118 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import com.rohitsurya2809.vaultedge.repository.AccountRepository;
+import com.rohitsurya2809.vaultedge.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A transfer credited after a newer deposit of its destination is flushed with the newer
+ * balance, but may reach the flusher first or last. Either way the account must end up with the
+ * balance of its highest row version.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerFlusherTest {
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+
+    @Autowired
+    private CustomerRepository customers;
+
+    @Autowired
+    private AccountRepository accounts;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID accountId;
+    private LedgerFlusher flusher;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customers.save(Customer.builder()
+                .fullName("Ledger Owner")
+                .email("ledger-" + UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .build());
+        accountId = accounts.save(Account.builder()
+                .id(Ids.next())
+                .customer(customer)
+                .accountNumber("ACC-" + UUID.randomUUID().toString().substring(0, 20))
+                .accountType("SAVINGS")
+                .currency("INR")
+                .balance(new BigDecimal("100.00"))
+                .status("ACTIVE")
+                .build()).getId();
+        flusher = new LedgerFlusher(jdbc, new TransactionTemplate(transactionManager), 10);
+    }
+
+    @Test
+    void olderRowInTheSameBatchDoesNotWin() throws Exception {
+        flusher.enqueue(credit());
+        flusher.enqueue(deposit());
+        flusher.start();
+        flusher.stop(10_000);
+
+        assertThat(balance()).isEqualByComparingTo("111.00");
+        assertThat(rows()).isEqualTo(2);
+    }
+
+    @Test
+    void olderRowInALaterBatchDoesNotWin() throws Exception {
+        flusher.start();
+        flusher.enqueue(credit());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (rows() < 1 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        flusher.enqueue(deposit());
+        flusher.stop(10_000);
+
+        assertThat(balance()).isEqualByComparingTo("111.00");
+        assertThat(rows()).isEqualTo(2);
+    }
+
+    // journaled at seq 5 and applied while the transfer below waited for its debit to sync
+    private LedgerFlusher.Row deposit() {
+        return new LedgerFlusher.Row(5, 5, Ids.next(), accountId, "DEPOSIT", BigDecimal.ONE,
+                new BigDecimal("101.00"), null, System.currentTimeMillis());
+    }
+
+    // transfer journaled at seq 4, credited after the deposit
+    private LedgerFlusher.Row credit() {
+        return new LedgerFlusher.Row(4, 6, Ids.next(), accountId, "TRANSFER_IN", BigDecimal.TEN,
+                new BigDecimal("111.00"), Ids.next(), System.currentTimeMillis());
+    }
+
+    private BigDecimal balance() {
+        return jdbc.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class,
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+
+    private int rows() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM transactions WHERE account_id = ?", Integer.class,
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+}
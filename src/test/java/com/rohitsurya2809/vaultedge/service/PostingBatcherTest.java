@@ -0,0 +1,152 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+import com.rohitsurya2809.vaultedge.dto.TransferRequest;
+import com.rohitsurya2809.vaultedge.exception.NotFoundException;
+import com.rohitsurya2809.vaultedge.exception.ServiceBusyException;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import com.rohitsurya2809.vaultedge.repository.AccountRepository;
+import com.rohitsurya2809.vaultedge.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Transfers through the group-commit stage. The window is wide enough for concurrent postings to
+ * share one batch, so a transfer that fails after its first leg must be undone on its own.
+ */
+@SpringBootTest(properties = {
+        "ledger.group-commit.enabled=true",
+        "ledger.group-commit.window-ms=200"
+})
+@ActiveProfiles("test")
+class PostingBatcherTest {
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+    // sorts after every other key, so the source leg of a transfer to it is applied first
+    private static final UUID MISSING = new UUID(-1L, -1L);
+
+    @Autowired
+    private PostingBatcher batcher;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CustomerRepository customers;
+
+    @Autowired
+    private AccountRepository accounts;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private UUID source;
+    private UUID target;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customers.save(Customer.builder()
+                .fullName("Batch Owner")
+                .email("batch-" + UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .build());
+        source = newAccount(customer, new BigDecimal("100.00"));
+        target = newAccount(customer, BigDecimal.ZERO);
+    }
+
+    @Test
+    void transferIsCommitted() {
+        TransactionResponse resp = transactionService.transfer(TransferRequest.builder()
+                .fromAccountId(source)
+                .toAccountId(target)
+                .amount(new BigDecimal("30.00"))
+                .build(), null);
+
+        assertThat(resp.getType()).isEqualTo("TRANSFER_OUT");
+        assertThat(resp.getBalanceAfter()).isEqualByComparingTo("70.00");
+        assertThat(balance(source)).isEqualByComparingTo("70.00");
+        assertThat(balance(target)).isEqualByComparingTo("30.00");
+        assertThat(rows(source)).isEqualTo(1);
+        assertThat(rows(target)).isEqualTo(1);
+    }
+
+    @Test
+    void failedTransferIsUndoneWithoutFailingItsBatch() throws Exception {
+        List<Posting> postings = List.of(
+                Posting.transfer(source, MISSING, new BigDecimal("50.00"), null),
+                Posting.transfer(source, target, new BigDecimal("20.00"), null),
+                Posting.deposit(target, new BigDecimal("5.00")));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(postings.size());
+        List<Future<PostingResult>> results = new ArrayList<>();
+        try {
+            for (Posting p : postings) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return batcher.post(p);
+                }));
+            }
+            start.countDown();
+
+            assertThatThrownBy(() -> results.get(0).get(30, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(NotFoundException.class);
+            assertThat(results.get(1).get(30, TimeUnit.SECONDS).getResponse().getType()).isEqualTo("TRANSFER_OUT");
+            assertThat(results.get(2).get(30, TimeUnit.SECONDS).getResponse().getType()).isEqualTo("DEPOSIT");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(balance(source)).isEqualByComparingTo("80.00");
+        assertThat(balance(target)).isEqualByComparingTo("25.00");
+        assertThat(rows(source)).isEqualTo(1);
+        assertThat(rows(target)).isEqualTo(2);
+    }
+
+    @Test
+    void stoppedBatcherRejectsAsBusy() {
+        PostingBatcher stopped = new PostingBatcher(null, null, new SimpleMeterRegistry(), true, 2, 100, 1, 5000);
+
+        assertThatThrownBy(() -> stopped.post(Posting.deposit(source, BigDecimal.ONE)))
+                .isInstanceOf(ServiceBusyException.class);
+    }
+
+    private UUID newAccount(Customer customer, BigDecimal balance) {
+        return accounts.save(Account.builder()
+                .id(Ids.next())
+                .customer(customer)
+                .accountNumber("ACC-" + UUID.randomUUID().toString().substring(0, 20))
+                .accountType("SAVINGS")
+                .currency("INR")
+                .balance(balance)
+                .status("ACTIVE")
+                .build()).getId();
+    }
+
+    private BigDecimal balance(UUID accountId) {
+        return jdbc.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class,
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+
+    private int rows(UUID accountId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM transactions WHERE account_id = ?", Integer.class,
+                (Object) UUIDS.convertToDatabaseColumn(accountId));
+    }
+}
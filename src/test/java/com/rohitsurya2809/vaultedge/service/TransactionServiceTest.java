@@ -0,0 +1,94 @@
+package com.rohitsurya2809.vaultedge.service;
+
+import com.rohitsurya2809.vaultedge.config.Ids;
+import com.rohitsurya2809.vaultedge.config.UUIDConverter;
+import com.rohitsurya2809.vaultedge.dto.DepositRequest;
+import com.rohitsurya2809.vaultedge.dto.TransactionResponse;
+import com.rohitsurya2809.vaultedge.model.Account;
+import com.rohitsurya2809.vaultedge.model.Customer;
+import com.rohitsurya2809.vaultedge.repository.AccountRepository;
+import com.rohitsurya2809.vaultedge.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Postings through the direct write path.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionServiceTest {
+
+    private static final UUIDConverter UUIDS = new UUIDConverter();
+    private static final int DUPLICATES = 20;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private CustomerRepository customers;
+
+    @Autowired
+    private AccountRepository accounts;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void concurrentDuplicateDepositsPostOnce() throws Exception {
+        Customer customer = customers.save(Customer.builder()
+                .fullName("Deposit Owner")
+                .email("deposit-" + UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .build());
+        UUID accountId = accounts.save(Account.builder()
+                .id(Ids.next())
+                .customer(customer)
+                .accountNumber("ACC-" + UUID.randomUUID().toString().substring(0, 20))
+                .accountType("SAVINGS")
+                .currency("INR")
+                .balance(BigDecimal.ZERO)
+                .status("ACTIVE")
+                .build()).getId();
+        String key = idempotencyService.scope(customer.getId(), "deposit-once");
+        DepositRequest req = DepositRequest.builder().amount(BigDecimal.TEN).build();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(DUPLICATES);
+        List<Future<TransactionResponse>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < DUPLICATES; i++) {
+                responses.add(pool.submit(() -> {
+                    start.await();
+                    return transactionService.deposit(accountId, req, key);
+                }));
+            }
+            start.countDown();
+            UUID first = responses.get(0).get(30, TimeUnit.SECONDS).getId();
+            for (Future<TransactionResponse> r : responses) {
+                assertThat(r.get(30, TimeUnit.SECONDS).getId()).isEqualTo(first);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        byte[] id = UUIDS.convertToDatabaseColumn(accountId);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM transactions WHERE account_id = ?", Integer.class, (Object) id))
+                .isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, (Object) id))
+                .isEqualByComparingTo("10.00");
+    }
+}